@@ -0,0 +1,205 @@
+package company;
+
+import contracts.InvalidContractException;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeStreamTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    InsuranceCompany insurer;
+    ChangeStream.Subscription subscription;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(START);
+        subscription = insurer.enableChangeStream(1 << 10).subscribe();
+    }
+
+    private List<ChangeEvent> drain() {
+        List<ChangeEvent> events = new ArrayList<>();
+        subscription.drainTo(events, Integer.MAX_VALUE);
+        return events;
+    }
+
+    private static List<ChangeType> types(List<ChangeEvent> events) {
+        List<ChangeType> types = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            types.add(event.getType());
+        }
+        return types;
+    }
+
+    @Test
+    public void givenBusinessOperations_whenDraining_thenEveryChangeIsPublishedInOrder() {
+        var legalHolder = new Person("132453");
+        var child = insurer.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+        var travel = insurer.insurePersons("T1", new Person("7201011235"), 30,
+                PremiumPaymentFrequency.ANNUAL, Set.of(new Person("0001011230")));
+        insurer.setCurrentTime(START.plusMonths(1));
+        insurer.chargePremiumOnContract(master);
+        master.pay(100);
+        insurer.processClaim(travel, travel.getInsuredPersons());
+        master.setInactive();
+        master.setInactive();
+
+        List<ChangeEvent> events = drain();
+
+        assertEquals(List.of(ChangeType.CONTRACT_CREATED, ChangeType.PREMIUM_ACCRUED, ChangeType.CONTRACT_CREATED,
+                ChangeType.CONTRACT_MOVED, ChangeType.CONTRACT_CREATED, ChangeType.PREMIUM_ACCRUED,
+                ChangeType.PREMIUM_ACCRUED, ChangeType.PAYMENT_APPLIED, ChangeType.CLAIM_PAID,
+                ChangeType.CONTRACT_DEACTIVATED, ChangeType.CONTRACT_DEACTIVATED, ChangeType.CONTRACT_DEACTIVATED),
+                types(events));
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getSequence());
+        }
+        assertEquals("M1", events.get(3).getRelatedContractNumber());
+        assertEquals(60, events.get(6).getAmount());
+        assertEquals(START.plusMonths(1), events.get(7).getTime());
+        assertEquals(10, events.get(8).getAmount());
+        assertEquals(List.of("T1", "C1", "M1"), List.of(events.get(9).getContractNumber(),
+                events.get(10).getContractNumber(), events.get(11).getContractNumber()));
+        assertNull(subscription.poll());
+        assertEquals(0, subscription.getLostEvents());
+    }
+
+    @Test
+    public void givenSlowSubscriber_whenRingWrapsAround_thenOldestEventsAreCountedAsLost() {
+        var stream = new ChangeStream(4);
+        var slow = stream.subscribe();
+        for (int i = 0; i < 10; i++) {
+            stream.publish(ChangeType.PAYMENT_APPLIED, "S" + i, null, START, i);
+        }
+
+        List<ChangeEvent> events = new ArrayList<>();
+        slow.drainTo(events, 100);
+
+        assertEquals(6, slow.getLostEvents());
+        assertEquals(List.of(6L, 7L, 8L, 9L), events.stream().map(ChangeEvent::getSequence).toList());
+        assertEquals(10, slow.getNextSequence());
+    }
+
+    @Test
+    public void givenConcurrentPublishers_whenDraining_thenSequencesAreContiguous() throws Exception {
+        var stream = new ChangeStream(1 << 17);
+        var all = stream.subscribe();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    stream.publish(ChangeType.PAYMENT_APPLIED, "S1", null, START, 1);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        List<ChangeEvent> events = new ArrayList<>();
+        while (events.size() < 80_000) {
+            all.drainTo(events, 1_000);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getSequence());
+        }
+        assertEquals(0, all.getLostEvents());
+        assertEquals(80_000, stream.getPublishedCount());
+    }
+
+    @Test
+    public void givenConcurrentDeactivations_whenDraining_thenContractIsDeactivatedOnce() throws Exception {
+        var contract = insurer.insureVehicle("S1", null, new Person("7201011235"), 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        drain();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(contract::setInactive);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(contract.isActive());
+        assertEquals(List.of(ChangeType.CONTRACT_DEACTIVATED), types(drain()));
+    }
+
+    @Test
+    public void givenContractOfOtherInsurer_whenReportingPayment_thenThrowsInvalidContractException() {
+        var other = new InsuranceCompany(START);
+        var contract = other.insureVehicle("S1", null, new Person("7201011235"), 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+
+        assertThrows(InvalidContractException.class, () -> insurer.paymentApplied(contract, START, 10));
+        assertTrue(drain().isEmpty());
+    }
+
+    @Test
+    public void givenLastActiveChildDeactivatedByClaim_whenDraining_thenMasterDeactivationFollows() {
+        var legalHolder = new Person("132453");
+        var first = insurer.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var second = insurer.insureVehicle("C2", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(first);
+        master.requestAdditionOfChildContract(second);
+        drain();
+
+        insurer.processClaim(first, 1000);
+        insurer.processClaim(second, 1000);
+        master.setInactive();
+
+        List<ChangeEvent> events = drain();
+        assertEquals(List.of(ChangeType.CLAIM_PAID, ChangeType.CONTRACT_DEACTIVATED, ChangeType.CLAIM_PAID,
+                ChangeType.CONTRACT_DEACTIVATED, ChangeType.CONTRACT_DEACTIVATED), types(events));
+        assertEquals(List.of("C1", "C2", "M1"), List.of(events.get(1).getContractNumber(),
+                events.get(3).getContractNumber(), events.get(4).getContractNumber()));
+        assertFalse(master.isActive());
+    }
+
+    @Test
+    public void givenActiveOrForeignContract_whenReportingDeactivation_thenThrows() {
+        var contract = insurer.insureVehicle("S1", null, new Person("7201011235"), 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var other = new InsuranceCompany(START);
+        var foreign = other.insureVehicle("S1", null, new Person("7201011235"), 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        foreign.setInactive();
+        drain();
+
+        assertThrows(IllegalStateException.class, () -> insurer.contractDeactivated(contract));
+        assertThrows(InvalidContractException.class, () -> insurer.contractDeactivated(foreign));
+        assertThrows(IllegalArgumentException.class, () -> insurer.contractDeactivated(null));
+        assertTrue(drain().isEmpty());
+    }
+
+    @Test
+    public void givenCapacityThatIsNotPowerOfTwo_whenCreatingStream_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStream(1000));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStream(0));
+    }
+
+    @Test
+    public void givenEnabledStream_whenEnablingAgain_thenThrowsIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> insurer.enableChangeStream(16));
+    }
+}
@@ -0,0 +1,228 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import contracts.TravelContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import payment.PaymentLedger;
+import payment.PremiumPaymentFrequency;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompanySnapshotTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 31, 9, 30, 15, 500_000_000);
+
+    @TempDir
+    Path directory;
+
+    InsuranceCompany insurer;
+    Person holder;
+    Person legalHolder;
+    Person traveller;
+    MasterVehicleContract master;
+    TravelContract travel;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(START);
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.FLAG);
+        holder = new Person("7201011235");
+        legalHolder = new Person("132453");
+        traveller = new Person("0001011230");
+
+        var single = insurer.insureVehicle("S1", new Person("8001011238"), holder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        insurer.insureVehicle("S2", null, holder, 100, PremiumPaymentFrequency.QUARTERLY,
+                new Vehicle("BA111PZ", 1000)).setInactive();
+        travel = insurer.insurePersons("T1", holder, 30, PremiumPaymentFrequency.ANNUAL, Set.of(traveller, holder));
+        master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        for (int i = 0; i < 3; i++) {
+            master.requestAdditionOfChildContract(insurer.insureVehicle("C" + i, null, legalHolder, 50 + i,
+                    PremiumPaymentFrequency.SEMI_ANNUAL, new Vehicle("BA22" + i + "PZ", 1000)));
+        }
+        master.getChildContracts().iterator().next().setInactive();
+        insurer.createMasterVehicleContract("M2", null, legalHolder).setInactive();
+
+        insurer.setCurrentTime(START.plusMonths(7));
+        insurer.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+        single.pay(40);
+        single.pay(25);
+        master.pay(70);
+        insurer.processClaim(travel, Set.of(traveller));
+        insurer.processClaim(single, 300);
+    }
+
+    @Test
+    public void givenCompany_whenRestoringSnapshot_thenStateMatches() {
+        Path file = directory.resolve("company.snapshot");
+
+        long size = CompanySnapshot.write(insurer, file);
+        InsuranceCompany restored = CompanySnapshot.restore(file);
+
+        assertEquals(size, file.toFile().length());
+        assertEquals(insurer.getCurrentTime(), restored.getCurrentTime());
+        assertEquals(VehicleUniquenessPolicy.FLAG, restored.getVehicleUniquenessPolicy());
+        assertEquals(numbers(insurer.getFlaggedVehicleContracts()), numbers(restored.getFlaggedVehicleContracts()));
+        assertEquals(numbers(insurer.getContracts()), numbers(restored.getContracts()));
+
+        PaymentLedger ledger = insurer.getHandler().getLedger();
+        PaymentLedger restoredLedger = restored.getHandler().getLedger();
+        for (AbstractContract contract : all(insurer)) {
+            AbstractContract copy = find(restored, contract.getContractNumber());
+            assertEquals(contract.getClass(), copy.getClass());
+            assertEquals(contract.isActive(), copy.isActive(), contract.getContractNumber());
+            assertEquals(contract.getCoverageAmount(), copy.getCoverageAmount());
+            assertEquals(contract.getPolicyHolder(), copy.getPolicyHolder());
+            assertEquals(ledger.count(contract), restoredLedger.count(copy));
+            assertEquals(ledger.total(contract), restoredLedger.total(copy));
+            if (contract.getContractPaymentData() != null) {
+                assertEquals(contract.getContractPaymentData().getOutstandingBalance(),
+                        copy.getContractPaymentData().getOutstandingBalance());
+                assertEquals(contract.getContractPaymentData().getNextPaymentTime(),
+                        copy.getContractPaymentData().getNextPaymentTime());
+                assertEquals(contract.getContractPaymentData().getPremiumPaymentFrequency(),
+                        copy.getContractPaymentData().getPremiumPaymentFrequency());
+            }
+        }
+
+        var restoredMaster = (MasterVehicleContract) restored.findByNumber("M1");
+        assertEquals(master.getActiveChildCount(), restoredMaster.getActiveChildCount());
+        assertEquals(master.getTotalOutstandingBalance(), restoredMaster.getTotalOutstandingBalance());
+        assertEquals(numbers(master.getChildContracts()), numbers(restoredMaster.getChildContracts()));
+        assertEquals(traveller.getPaidOutAmount(), restored.findPersonById("0001011230").getPaidOutAmount());
+        assertEquals(holder.getPaidOutAmount(), restored.findPersonById("7201011235").getPaidOutAmount());
+        assertEquals(numbers(insurer.findByLicensePlate("BA111PZ")), numbers(restored.findByLicensePlate("BA111PZ")));
+        assertEquals(Set.of(restored.findByNumber("S1"), restored.findByNumber("S2"), restored.findByNumber("T1")),
+                restored.findPersonById("7201011235").getContracts());
+    }
+
+    @Test
+    public void givenRestoredCompany_whenContinuingBusiness_thenItBehavesLikeOriginal() {
+        Path file = directory.resolve("company.snapshot");
+        CompanySnapshot.write(insurer, file);
+        InsuranceCompany restored = CompanySnapshot.restore(file);
+
+        for (InsuranceCompany company : List.of(insurer, restored)) {
+            company.setCurrentTime(START.plusMonths(13));
+            company.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+            company.findByNumber("M1").pay(500);
+        }
+
+        for (AbstractContract contract : all(insurer)) {
+            if (contract.getContractPaymentData() == null) continue;
+            assertEquals(contract.getContractPaymentData().getOutstandingBalance(),
+                    find(restored, contract.getContractNumber()).getContractPaymentData().getOutstandingBalance());
+        }
+        assertThrows(IllegalArgumentException.class, () -> restored.insureVehicle("S1", null, holder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA999PZ", 1000)));
+    }
+
+    @Test
+    public void givenLargeBook_whenRestoringSnapshot_thenEveryContractIsBack() {
+        var large = new InsuranceCompany(START);
+        for (int i = 0; i < 100_000; i++) {
+            large.insureVehicle("V" + i, null, holder, 20 + i % 50, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA" + String.format("%05d", i), 1000));
+        }
+        Path file = directory.resolve("large.snapshot");
+        CompanySnapshot.write(large, file);
+
+        InsuranceCompany restored = CompanySnapshot.restore(file);
+
+        assertEquals(100_000, restored.getContracts().size());
+        assertEquals(20 + 99_999 % 50, restored.findByNumber("V99999").getContractPaymentData().getPremium());
+    }
+
+    @Test
+    public void givenPaymentsRunningAlongside_whenWritingSnapshot_thenBalancesMatchTheWrittenHistory() throws Exception {
+        var busy = new InsuranceCompany(START);
+        List<SingleVehicleContract> contracts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            contracts.add(busy.insureVehicle("V" + i, null, new Person(String.format("%06d", 100_000 + i)), 100,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA" + String.format("%05d", i), 1000)));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread payer = new Thread(() -> {
+            for (int i = 0; writing.get(); i = (i + 1) % contracts.size()) {
+                contracts.get(i).pay(1);
+            }
+        });
+        payer.start();
+
+        List<InsuranceCompany> images = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                Path file = directory.resolve("busy" + i + ".snapshot");
+                CompanySnapshot.write(busy, file);
+                images.add(CompanySnapshot.restore(file));
+            }
+        } finally {
+            writing.set(false);
+            payer.join();
+        }
+
+        for (InsuranceCompany image : images) {
+            PaymentLedger ledger = image.getHandler().getLedger();
+            for (AbstractContract contract : image.getContracts()) {
+                assertEquals(100 - ledger.count(contract), contract.getContractPaymentData().getOutstandingBalance());
+            }
+        }
+    }
+
+    @Test
+    public void givenCorruptedSnapshot_whenRestoring_thenThrowsIllegalArgumentException() throws Exception {
+        Path file = directory.resolve("company.snapshot");
+        CompanySnapshot.write(insurer, file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IllegalArgumentException.class, () -> CompanySnapshot.restore(file));
+    }
+
+    @Test
+    public void givenFileThatIsNotSnapshot_whenRestoring_thenThrowsIllegalArgumentException() throws Exception {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IllegalArgumentException.class, () -> CompanySnapshot.restore(file));
+    }
+
+    private static List<AbstractContract> all(InsuranceCompany company) {
+        List<AbstractContract> contracts = new ArrayList<>();
+        for (AbstractContract contract : company.getContracts()) {
+            contracts.add(contract);
+            if (contract instanceof MasterVehicleContract master) contracts.addAll(master.getChildContracts());
+        }
+        return contracts;
+    }
+
+    private static AbstractContract find(InsuranceCompany company, String contractNumber) {
+        for (AbstractContract contract : all(company)) {
+            if (contract.getContractNumber().equals(contractNumber)) return contract;
+        }
+        throw new AssertionError(contractNumber);
+    }
+
+    private static List<String> numbers(Iterable<? extends AbstractContract> contracts) {
+        List<String> numbers = new ArrayList<>();
+        for (AbstractContract contract : contracts) {
+            numbers.add(contract.getContractNumber());
+        }
+        return numbers;
+    }
+}
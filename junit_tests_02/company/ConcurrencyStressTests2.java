@@ -0,0 +1,365 @@
+package company;
+
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PaymentRequest;
+import payment.PaymentResult;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyStressTests2 {
+    private static final int THREADS = 8;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    ExecutorService executor;
+    InsuranceCompany insurer;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        insurer = new InsuranceCompany(START);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void runTogether(List<Callable<Void>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    private SingleVehicleContract insure(String contractNumber, Person holder, Person beneficiary, int premium) {
+        return insurer.insureVehicle(contractNumber, beneficiary, holder, premium,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA" + String.format("%05d", contractNumber.hashCode() & 0xFFFF), 1000));
+    }
+
+    @Test
+    public void givenPaymentsOnSharedAndOwnContracts_whenPayingFromManyThreads_thenNoPaymentIsLost() throws Exception {
+        var legalHolder = new Person("132453");
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        List<SingleVehicleContract> children = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            var child = insure("C" + i, legalHolder, null, 100);
+            master.requestAdditionOfChildContract(child);
+            children.add(child);
+        }
+        var shared = insure("S0", new Person("7201011235"), null, 100);
+        List<SingleVehicleContract> own = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            own.add(insure("O" + t, new Person(String.format("%06d", 200_000 + t)), null, 100));
+        }
+
+        int paymentsPerThread = 5_000;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            SingleVehicleContract mine = own.get(t);
+            tasks.add(() -> {
+                for (int i = 0; i < paymentsPerThread; i++) {
+                    insurer.getHandler().pay(shared, 1);
+                    insurer.getHandler().pay(mine, 2);
+                    master.pay(1);
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        int total = THREADS * paymentsPerThread;
+        assertEquals(100 - total, shared.getContractPaymentData().getOutstandingBalance());
+        assertEquals(total, insurer.getHandler().getLedger().count(shared));
+        assertEquals(total, insurer.getHandler().getLedger().count(master));
+        for (SingleVehicleContract contract : own) {
+            assertEquals(100 - 2 * paymentsPerThread, contract.getContractPaymentData().getOutstandingBalance());
+        }
+        long childBalances = 0;
+        for (SingleVehicleContract child : children) {
+            childBalances += child.getContractPaymentData().getOutstandingBalance();
+        }
+        assertEquals(4 * 100 - total, childBalances);
+        assertEquals(childBalances, master.getTotalOutstandingBalance());
+    }
+
+    @Test
+    public void givenBillingRunningAlongsidePayments_whenFinished_thenBalancesAddUp() throws Exception {
+        List<SingleVehicleContract> contracts = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            contracts.add(insure("S" + i, new Person(String.format("%06d", 300_000 + i % 64)), null, 10));
+        }
+        insurer.setCurrentTime(START.plusMonths(6));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            insurer.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+            return null;
+        });
+        for (int t = 0; t < THREADS - 1; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                for (int i = offset; i < contracts.size(); i += THREADS - 1) {
+                    contracts.get(i).pay(7);
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        for (SingleVehicleContract contract : contracts) {
+            assertEquals(10 + 6 * 10 - 7, contract.getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenClaimsForOneBeneficiary_whenProcessingFromManyThreads_thenEveryPayoutIsCounted() throws Exception {
+        var beneficiary = new Person("8001011238");
+        List<SingleVehicleContract> contracts = new ArrayList<>();
+        for (int i = 0; i < 4_000; i++) {
+            contracts.add(insure("S" + i, new Person(String.format("%06d", 400_000 + i)), beneficiary, 100));
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = next.getAndIncrement(); i < contracts.size(); i = next.getAndIncrement()) {
+                    insurer.processClaim(contracts.get(i), 100);
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        assertEquals(4_000 * 500, beneficiary.getPaidOutAmount());
+    }
+
+    @Test
+    public void givenSameContractNumbersFromManyThreads_whenInsuring_thenEachNumberIsRegisteredOnce() throws Exception {
+        var holder = new Person("7201011235");
+        AtomicInteger created = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 500; i++) {
+                    try {
+                        insure("S" + i, holder, null, 100);
+                        created.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        assertEquals("Contract with this number already exists", e.getMessage());
+                    }
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        assertEquals(500, created.get());
+        assertEquals(500, insurer.getContracts().size());
+        assertEquals(500, holder.getContracts().size());
+    }
+
+    @Test
+    public void givenMovesOfDifferentFleets_whenRunningConcurrently_thenEveryChildEndsUpInItsMaster() throws Exception {
+        List<MasterVehicleContract> masters = new ArrayList<>();
+        List<List<SingleVehicleContract>> fleets = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            var holder = new Person(String.format("%06d", 500_000 + t));
+            masters.add(insurer.createMasterVehicleContract("M" + t, null, holder));
+            List<SingleVehicleContract> fleet = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                fleet.add(insure("F" + t + "-" + i, holder, null, 100));
+            }
+            fleets.add(fleet);
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            MasterVehicleContract master = masters.get(t);
+            List<SingleVehicleContract> fleet = fleets.get(t);
+            tasks.add(() -> {
+                for (SingleVehicleContract child : fleet) {
+                    master.requestAdditionOfChildContract(child);
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        assertEquals(THREADS, insurer.getContracts().size());
+        for (int t = 0; t < THREADS; t++) {
+            assertEquals(250, masters.get(t).getChildContracts().size());
+            assertEquals(250, masters.get(t).getActiveChildCount());
+            var child = fleets.get(t).get(0);
+            assertTrue(insurer.findByLicensePlate(child.getInsuredVehicle().getLicensePlate()).contains(child));
+        }
+    }
+
+    @Test
+    public void givenMovesIntoMaster_whenBillingAndAuditingAlongside_thenChildSetIsReadSafely() throws Exception {
+        var holder = new Person("600000");
+        MasterVehicleContract master = insurer.createMasterVehicleContract("M1", null, holder);
+        List<SingleVehicleContract> fleet = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            fleet.add(insure("F" + i, holder, null, 100));
+        }
+        AtomicInteger movesLeft = new AtomicInteger(fleet.size());
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            for (SingleVehicleContract child : fleet) {
+                master.requestAdditionOfChildContract(child);
+                movesLeft.decrementAndGet();
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            while (movesLeft.get() > 0) {
+                insurer.auditDuplicateVehicles();
+                insurer.chargePremiumOnContract(master);
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            while (movesLeft.get() > 0) {
+                insurer.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+                insurer.chargeDuePremiums();
+            }
+            return null;
+        });
+        runTogether(tasks);
+
+        assertEquals(2_000, master.getChildContracts().size());
+    }
+
+    @Test
+    public void givenMovesIntoMaster_whenReadingItAndChargingDueAlongside_thenNoReadFails() throws Exception {
+        var holder = new Person("600000");
+        MasterVehicleContract master = insurer.createMasterVehicleContract("M1", null, holder);
+        List<SingleVehicleContract> fleet = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            fleet.add(insure("F" + i, holder, null, 100));
+        }
+        insurer.setLiveClock(true);
+        AtomicInteger movesLeft = new AtomicInteger(fleet.size());
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            for (SingleVehicleContract child : fleet) {
+                master.requestAdditionOfChildContract(child);
+                movesLeft.decrementAndGet();
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            while (movesLeft.get() > 0) {
+                assertTrue(master.isActive());
+                master.getActiveChildCount();
+                master.getTotalOutstandingBalance();
+                master.getTotalCoverageAmount();
+                insurer.findByPolicyHolder(holder);
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            for (int month = 1; movesLeft.get() > 0; month++) {
+                insurer.setCurrentTime(START.plusMonths(month));
+            }
+            return null;
+        });
+        runTogether(tasks);
+
+        assertEquals(2_000, master.getActiveChildCount());
+        assertEquals(2_001, insurer.findByPolicyHolder(holder).size());
+    }
+
+    @Test
+    public void givenPaymentsByNumber_whenInsuringAlongside_thenEveryPaymentIsApplied() throws Exception {
+        var holder = new Person("7201011235");
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            insure("S" + i, holder, null, 100);
+            requests.add(new PaymentRequest("S" + i, 1));
+        }
+        var legalHolder = new Person("132453");
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(insure("C1", legalHolder, null, 100));
+        requests.add(new PaymentRequest("C1", 1));
+        AtomicInteger insured = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                insure("N" + i, new Person(String.format("%06d", 700_000 + i)), null, 100);
+                insured.incrementAndGet();
+            }
+            return null;
+        });
+        tasks.add(() -> {
+            while (insured.get() < 2_000) {
+                for (PaymentResult result : insurer.getHandler().payBatch(requests)) {
+                    assertTrue(result.isApplied());
+                }
+            }
+            return null;
+        });
+        runTogether(tasks);
+
+        assertEquals(2_501, insurer.getContracts().size());
+    }
+
+    @Test
+    public void givenSamePlateFromManyThreads_whenInsuringUnderRejectPolicy_thenOnlyOneContractIsCreated() throws Exception {
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.REJECT);
+        AtomicInteger created = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            var holder = new Person(String.format("%06d", 800_000 + t));
+            int thread = t;
+            tasks.add(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        insurer.insureVehicle("P" + thread + "-" + i, null, holder, 100,
+                                PremiumPaymentFrequency.MONTHLY, new Vehicle(String.format("BA%05d", i), 1000));
+                        created.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        assertEquals("Vehicle with this license plate is already insured", e.getMessage());
+                    }
+                }
+                return null;
+            });
+        }
+        runTogether(tasks);
+
+        assertEquals(200, created.get());
+        assertEquals(0, insurer.auditDuplicateVehicles().size());
+    }
+}
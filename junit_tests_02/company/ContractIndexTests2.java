@@ -0,0 +1,109 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import contracts.TravelContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractIndexTests2 {
+    InsuranceCompany insurer;
+    Person legalHolder;
+    Person naturalHolder;
+    Person beneficiary;
+    Person traveller;
+    SingleVehicleContract single;
+    SingleVehicleContract child;
+    MasterVehicleContract master;
+    TravelContract travel;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        legalHolder = new Person("132453");
+        naturalHolder = new Person("7201011235");
+        beneficiary = new Person("8001011238");
+        traveller = new Person("0001011230");
+        single = insurer.insureVehicle("S1", beneficiary, naturalHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        child = insurer.insureVehicle("C1", beneficiary, legalHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 1000));
+        master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+        travel = insurer.insurePersons("T1", naturalHolder, 100, PremiumPaymentFrequency.MONTHLY,
+                new LinkedHashSet<>(Set.of(traveller, beneficiary)));
+    }
+
+    @Test
+    public void givenRegisteredContracts_whenQueryingByPolicyHolder_thenChildrenAreIncluded() {
+        assertEquals(Set.of(single, travel), insurer.findByPolicyHolder(naturalHolder));
+        assertEquals(Set.<AbstractContract>of(child, master), insurer.findByPolicyHolder(legalHolder));
+    }
+
+    @Test
+    public void givenMovedChild_whenQueryingByLicensePlate_thenChildIsFound() {
+        assertEquals(Set.of(child), insurer.findByLicensePlate("BA222PZ"));
+        assertEquals(Set.of(single), insurer.findByLicensePlate("BA111PZ"));
+        assertTrue(insurer.findByLicensePlate("BA999PZ").isEmpty());
+    }
+
+    @Test
+    public void givenBeneficiaryChanged_whenQueryingByBeneficiary_thenIndexFollows() {
+        var newBeneficiary = new Person("9001011239");
+        single.setBeneficiary(newBeneficiary);
+
+        assertEquals(Set.of(child), insurer.findByBeneficiary(beneficiary));
+        assertEquals(Set.of(single), insurer.findByBeneficiary(newBeneficiary));
+    }
+
+    @Test
+    public void givenInsuredPersons_whenQueryingByInsuredPerson_thenTravelContractIsFound() {
+        assertEquals(Set.of(travel), insurer.findByInsuredPerson(traveller));
+        assertEquals(Set.of(travel), insurer.findByInsuredPerson(beneficiary));
+
+        travel.getInsuredPersons().remove(traveller);
+        assertTrue(insurer.findByInsuredPerson(traveller).isEmpty());
+    }
+
+    @Test
+    public void givenDeactivatedContracts_whenQuerying_thenTheyAreLeftOut() {
+        single.setInactive();
+        master.setInactive();
+
+        assertTrue(insurer.findByLicensePlate("BA111PZ").isEmpty());
+        assertTrue(insurer.findByLicensePlate("BA222PZ").isEmpty());
+        assertTrue(insurer.findByBeneficiary(beneficiary).isEmpty());
+        assertEquals(Set.of(travel), insurer.findByPolicyHolder(naturalHolder));
+    }
+
+    @Test
+    public void givenContractRemovedFromRegistry_whenQuerying_thenItIsNotFound() {
+        insurer.getContracts().remove(master);
+
+        assertTrue(insurer.findByLicensePlate("BA222PZ").isEmpty());
+        assertTrue(insurer.findByPolicyHolder(legalHolder).isEmpty());
+    }
+
+    @Test
+    public void givenMovedChild_whenFindingContractByNumber_thenChildIsFoundUntilItsMasterIsRemoved() {
+        assertSame(child, insurer.findContract("C1"));
+        assertSame(single, insurer.findContract("S1"));
+        assertNull(insurer.findByNumber("C1"));
+
+        insurer.getContracts().remove(master);
+
+        assertNull(insurer.findContract("C1"));
+        assertNull(insurer.findContract("M1"));
+        assertNull(insurer.findContract(null));
+    }
+}
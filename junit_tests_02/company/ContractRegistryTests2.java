@@ -0,0 +1,100 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractRegistryTests2 {
+    InsuranceCompany insuranceCompany;
+    Person policyHolder;
+    Person legalPolicyHolder;
+
+    @BeforeEach
+    public void setUp() {
+        insuranceCompany = new InsuranceCompany(LocalDateTime.of(2025, 1, 15, 10, 0));
+        policyHolder = new Person("7201011235");
+        legalPolicyHolder = new Person("132453");
+    }
+
+    private SingleVehicleContract insure(String contractNumber) {
+        return insuranceCompany.insureVehicle(contractNumber, null, policyHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+    }
+
+    @Test
+    public void givenInsuredContracts_whenFindingByNumber_thenReturnsSameInstance() {
+        var first = insure("C1");
+        var second = insure("C2");
+
+        assertSame(first, insuranceCompany.findByNumber("C1"));
+        assertSame(second, insuranceCompany.findByNumber("C2"));
+        assertNull(insuranceCompany.findByNumber("C3"));
+        assertNull(insuranceCompany.findByNumber(null));
+    }
+
+    @Test
+    public void givenInsuredContracts_whenIterating_thenInsertionOrderIsPreserved() {
+        var first = insure("C2");
+        var second = insure("C1");
+        var master = insuranceCompany.createMasterVehicleContract("C0", null, legalPolicyHolder);
+
+        List<AbstractContract> order = new ArrayList<>(insuranceCompany.getContracts());
+
+        assertEquals(List.of(first, second, master), order);
+    }
+
+    @Test
+    public void givenContractAddedDirectly_whenInsuringSameNumber_thenThrowsIllegalArgumentException() {
+        var master = new MasterVehicleContract("C1", insuranceCompany, null, legalPolicyHolder);
+        insuranceCompany.getContracts().add(master);
+
+        assertTrue(InsuranceCompany.contractAlreadyExists(insuranceCompany.getContracts(), "C1"));
+        assertThrows(IllegalArgumentException.class, () -> insure("C1"));
+    }
+
+    @Test
+    public void givenContractRemovedDirectly_whenFindingByNumber_thenReturnsNull() {
+        var contract = insure("C1");
+
+        assertTrue(insuranceCompany.getContracts().remove(contract));
+
+        assertNull(insuranceCompany.findByNumber("C1"));
+        assertFalse(insuranceCompany.getContracts().contains(contract));
+        assertFalse(InsuranceCompany.contractAlreadyExists(insuranceCompany.getContracts(), "C1"));
+    }
+
+    @Test
+    public void givenContractOfOtherInsurerWithSameNumber_whenCheckingContains_thenReturnsFalse() {
+        insure("C1");
+        var otherInsurer = new InsuranceCompany(insuranceCompany.getCurrentTime());
+        var foreign = otherInsurer.insureVehicle("C1", null, policyHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 1000));
+
+        assertFalse(insuranceCompany.getContracts().contains(foreign));
+        assertFalse(insuranceCompany.getContracts().remove(foreign));
+        assertEquals(1, insuranceCompany.getContracts().size());
+    }
+
+    @Test
+    public void givenContractMovedToMaster_whenFindingByNumber_thenOnlyMasterIsRegistered() {
+        var legalHolderContract = insuranceCompany.insureVehicle("C1", null, legalPolicyHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var master = insuranceCompany.createMasterVehicleContract("M1", null, legalPolicyHolder);
+
+        master.requestAdditionOfChildContract(legalHolderContract);
+
+        assertNull(insuranceCompany.findByNumber("C1"));
+        assertSame(master, insuranceCompany.findByNumber("M1"));
+    }
+}
@@ -0,0 +1,140 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DueDateIndexTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    InsuranceCompany insuranceCompany;
+    Person policyHolder;
+    Person legalPolicyHolder;
+
+    @BeforeEach
+    public void setUp() {
+        insuranceCompany = new InsuranceCompany(START);
+        policyHolder = new Person("7201011235");
+        legalPolicyHolder = new Person("132453");
+    }
+
+    private SingleVehicleContract insure(String contractNumber, Person holder, PremiumPaymentFrequency frequency) {
+        return insuranceCompany.insureVehicle(contractNumber, null, holder, 100, frequency,
+                new Vehicle("BA111PZ", 1000));
+    }
+
+    private static List<Integer> balances(InsuranceCompany insurer) {
+        List<Integer> balances = new ArrayList<>();
+        for (AbstractContract contract : insurer.getContracts()) {
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : master.getChildContracts()) {
+                    balances.add(child.getContractPaymentData().getOutstandingBalance());
+                }
+            } else {
+                balances.add(contract.getContractPaymentData().getOutstandingBalance());
+            }
+        }
+        return balances;
+    }
+
+    @Test
+    public void givenTimeAdvancedStepByStep_whenChargingDuePremiums_thenBalancesMatchFullScan() {
+        var scanned = new InsuranceCompany(START);
+        var frequencies = PremiumPaymentFrequency.values();
+        for (var insurer : List.of(insuranceCompany, scanned)) {
+            var master = insurer.createMasterVehicleContract("M0", null, legalPolicyHolder);
+            for (int i = 0; i < 200; i++) {
+                insurer.setCurrentTime(START.plusDays(i * 3L));
+                var holder = i % 4 == 0 ? legalPolicyHolder : policyHolder;
+                var contract = insurer.insureVehicle("V" + i, null, holder, 100,
+                        frequencies[i % frequencies.length], new Vehicle("BA111PZ", 1000));
+                if (i % 4 == 0) master.requestAdditionOfChildContract(contract);
+                if (i % 9 == 5) contract.setInactive();
+            }
+        }
+
+        for (int day = 0; day < 1200; day += 5) {
+            insuranceCompany.setCurrentTime(START.plusDays(day));
+            scanned.setCurrentTime(START.plusDays(day));
+
+            insuranceCompany.chargeDuePremiums();
+            scanned.chargePremiumsOnContracts();
+
+            assertEquals(balances(scanned), balances(insuranceCompany), "day " + day);
+        }
+    }
+
+    @Test
+    public void givenFewContractsDue_whenChargingDuePremiums_thenOnlyDueContractsAreCharged() {
+        var monthly = insure("C1", policyHolder, PremiumPaymentFrequency.MONTHLY);
+        var annual = insure("C2", policyHolder, PremiumPaymentFrequency.ANNUAL);
+
+        insuranceCompany.setCurrentTime(START.plusMonths(1));
+        BillingSummary summary = insuranceCompany.chargeDuePremiums();
+
+        assertEquals(1, summary.getContractsCharged());
+        assertEquals(200, monthly.getContractPaymentData().getOutstandingBalance());
+        assertEquals(100, annual.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenDeactivatedContract_whenChargingDuePremiums_thenContractIsSkipped() {
+        var contract = insure("C1", policyHolder, PremiumPaymentFrequency.MONTHLY);
+        contract.setInactive();
+
+        insuranceCompany.setCurrentTime(START.plusMonths(3));
+        BillingSummary summary = insuranceCompany.chargeDuePremiums();
+
+        assertEquals(0, summary.getContractsCharged());
+        assertEquals(100, contract.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenContractMovedToMaster_whenChargingDuePremiums_thenChargedThroughMasterOnce() {
+        var contract = insure("C1", legalPolicyHolder, PremiumPaymentFrequency.MONTHLY);
+        var master = insuranceCompany.createMasterVehicleContract("M1", null, legalPolicyHolder);
+        master.requestAdditionOfChildContract(contract);
+
+        insuranceCompany.setCurrentTime(START.plusMonths(2));
+        BillingSummary summary = insuranceCompany.chargeDuePremiums();
+
+        assertEquals(1, summary.getContractsCharged());
+        assertEquals(2, summary.getPeriodsAccrued());
+        assertEquals(300, contract.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenFrequencyChanged_whenChargingDuePremiums_thenNewFrequencyIsUsed() {
+        var contract = insure("C1", policyHolder, PremiumPaymentFrequency.ANNUAL);
+        contract.getContractPaymentData().setPremiumPaymentFrequency(PremiumPaymentFrequency.MONTHLY);
+
+        insuranceCompany.setCurrentTime(START.plusYears(1));
+        insuranceCompany.chargeDuePremiums();
+
+        assertEquals(200, contract.getContractPaymentData().getOutstandingBalance());
+        assertEquals(START.plusYears(1).plusMonths(1), contract.getContractPaymentData().getNextPaymentTime());
+    }
+
+    @Test
+    public void givenContractRemovedFromRegistry_whenChargingDuePremiums_thenContractIsSkipped() {
+        var contract = insure("C1", policyHolder, PremiumPaymentFrequency.MONTHLY);
+        insuranceCompany.getContracts().remove(contract);
+
+        insuranceCompany.setCurrentTime(START.plusMonths(1));
+        BillingSummary summary = insuranceCompany.chargeDuePremiums();
+
+        assertEquals(0, summary.getContractsCharged());
+        assertEquals(100, contract.getContractPaymentData().getOutstandingBalance());
+    }
+}
@@ -0,0 +1,288 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.InvalidContractException;
+import contracts.MasterVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import payment.PremiumPaymentFrequency;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventSourcedCompanyTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 31, 9, 30, 15, 500_000_000);
+
+    @TempDir
+    Path directory;
+
+    Person holder;
+    Person legalHolder;
+    Person traveller;
+
+    @BeforeEach
+    public void setUp() {
+        holder = new Person("7201011235");
+        legalHolder = new Person("132453");
+        traveller = new Person("0001011230");
+    }
+
+    private void runBusiness(EventSourcedCompany company) {
+        company.insureVehicle("S1", new Person("8001011238"), holder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        company.insurePersons("T1", holder, 30, PremiumPaymentFrequency.ANNUAL, Set.of(traveller, holder));
+        company.createMasterVehicleContract("M1", null, legalHolder);
+        for (int i = 0; i < 3; i++) {
+            company.insureVehicle("C" + i, null, legalHolder, 50 + i, PremiumPaymentFrequency.SEMI_ANNUAL,
+                    new Vehicle("BA22" + i + "PZ", 1000));
+            company.moveSingleVehicleContractToMasterVehicleContract("M1", "C" + i);
+        }
+        company.setCurrentTime(START.plusMonths(7));
+        company.chargePremiumsOnContracts();
+        company.pay("S1", 40);
+        company.pay("M1", 70);
+        company.pay("C1", 20);
+        company.processClaim("T1", Set.of(traveller));
+        company.processClaim("S1", 300);
+    }
+
+    @Test
+    public void givenLoggedCommands_whenReopening_thenStateMatches() {
+        InsuranceCompany original;
+        try (var company = EventSourcedCompany.open(directory, START, 1_000)) {
+            runBusiness(company);
+            original = company.getCompany();
+            assertEquals(17, company.getCommandCount());
+        }
+
+        try (var reopened = EventSourcedCompany.open(directory, START.plusYears(5), 1_000)) {
+            assertEquals(17, reopened.getCommandCount());
+            assertSameState(original, reopened.getCompany());
+        }
+    }
+
+    @Test
+    public void givenSnapshotInterval_whenReopening_thenSnapshotAndTailAreUsed() throws Exception {
+        InsuranceCompany original;
+        try (var company = EventSourcedCompany.open(directory, START, 5)) {
+            runBusiness(company);
+            original = company.getCompany();
+        }
+
+        List<Path> snapshots = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(".snapshot")).forEach(snapshots::add);
+        }
+        assertEquals(List.of(directory.resolve("company-15.snapshot")), snapshots);
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 5)) {
+            assertSameState(original, reopened.getCompany());
+            reopened.pay("S1", 10);
+            assertEquals(18, reopened.getCommandCount());
+        }
+    }
+
+    @Test
+    public void givenTornTail_whenReopening_thenLastCompleteCommandWinsAndLogContinues() throws Exception {
+        try (var company = EventSourcedCompany.open(directory, START, 1_000)) {
+            company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+            company.pay("S1", 40);
+        }
+        Path log = directory.resolve("commands.log");
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertEquals(2, reopened.getCommandCount());
+            assertEquals(100, reopened.getCompany().findByNumber("S1").getContractPaymentData().getOutstandingBalance());
+            reopened.pay("S1", 60);
+        }
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertEquals(3, reopened.getCommandCount());
+            assertEquals(40, reopened.getCompany().findByNumber("S1").getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenCorruptLengthAfterLastRecord_whenReopening_thenTailIsCutOff() throws Exception {
+        try (var company = EventSourcedCompany.open(directory, START, 1_000)) {
+            company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+        }
+        Path log = directory.resolve("commands.log");
+        Files.write(log, ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE - 4).putInt(0).putInt(0).array(),
+                StandardOpenOption.APPEND);
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertEquals(2, reopened.getCommandCount());
+            reopened.pay("S1", 40);
+        }
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertEquals(3, reopened.getCommandCount());
+            assertEquals(60, reopened.getCompany().findByNumber("S1").getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenPolicyAndLiveClockChanges_whenReopening_thenReplayAppliesThem() {
+        try (var company = EventSourcedCompany.open(directory, START, 4)) {
+            company.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.FLAG);
+            company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+            company.insureVehicle("S2", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+            company.setLiveClock(true);
+            company.setCurrentTime(START.plusMonths(2));
+            assertEquals(300, company.getCompany().findByNumber("S2").getContractPaymentData().getOutstandingBalance());
+        }
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 4)) {
+            assertEquals(VehicleUniquenessPolicy.FLAG, reopened.getCompany().getVehicleUniquenessPolicy());
+            assertTrue(reopened.getCompany().isLiveClock());
+            assertEquals(300, reopened.getCompany().findByNumber("S2").getContractPaymentData().getOutstandingBalance());
+        }
+        InsuranceCompany replayed = EventSourcedCompany.replay(directory.resolve("commands.log"));
+        assertEquals(VehicleUniquenessPolicy.FLAG, replayed.getVehicleUniquenessPolicy());
+        assertTrue(replayed.isLiveClock());
+        assertEquals(300, replayed.findByNumber("S2").getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenCopyOfLog_whenReplayingOffline_thenStateMatches() throws Exception {
+        InsuranceCompany original;
+        try (var company = EventSourcedCompany.open(directory, START, 5)) {
+            runBusiness(company);
+            original = company.getCompany();
+        }
+        Path copy = Files.copy(directory.resolve("commands.log"), directory.resolve("copy.log"));
+
+        assertSameState(original, EventSourcedCompany.replay(copy));
+    }
+
+    @Test
+    public void givenFailingCommand_whenExecuting_thenItIsNotLogged() {
+        try (var company = EventSourcedCompany.open(directory, START, 1_000)) {
+            company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+            company.processClaim("S1", 900);
+
+            assertThrows(IllegalArgumentException.class, () -> company.insureVehicle("S1", null, holder, 100,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA999PZ", 1000)));
+            assertThrows(InvalidContractException.class, () -> company.pay("S1", 10));
+            assertThrows(IllegalArgumentException.class, () -> company.pay("X1", 10));
+            assertEquals(3, company.getCommandCount());
+        }
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertFalse(reopened.getCompany().findByNumber("S1").isActive());
+            assertEquals(500, reopened.getCompany().findPersonById("7201011235").getPaidOutAmount());
+        }
+    }
+
+    @Test
+    public void givenFailingInsureCommands_whenExecuting_thenNoPersonIsRegistered() {
+        try (var company = EventSourcedCompany.open(directory, START, 1_000)) {
+            company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                    new Vehicle("BA111PZ", 1000));
+            int persons = company.getCompany().getPersons().size();
+
+            assertThrows(IllegalArgumentException.class, () -> company.insureVehicle("S1", new Person("8001011238"),
+                    holder, 100, PremiumPaymentFrequency.MONTHLY, new Vehicle("BA999PZ", 1000)));
+            assertThrows(IllegalArgumentException.class, () -> company.insurePersons("S1", legalHolder, 30,
+                    PremiumPaymentFrequency.ANNUAL, Set.of(traveller)));
+            assertThrows(IllegalArgumentException.class, () -> company.createMasterVehicleContract("S1", null,
+                    legalHolder));
+
+            assertEquals(persons, company.getCompany().getPersons().size());
+            assertNull(company.getCompany().findPersonById("8001011238"));
+            assertNull(company.getCompany().findPersonById("132453"));
+        }
+    }
+
+    @Test
+    public void givenFailedAppend_whenExecutingNextCommand_thenThrowsIllegalStateException() {
+        var company = EventSourcedCompany.open(directory, START, 1_000);
+        company.insureVehicle("S1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA111PZ", 1000));
+        long commands = company.getCommandCount();
+        int balance = company.getCompany().findByNumber("S1").getContractPaymentData().getOutstandingBalance();
+        company.close();
+
+        assertThrows(UncheckedIOException.class, () -> company.pay("S1", 10));
+        assertThrows(IllegalStateException.class, () -> company.pay("S1", 10));
+        assertThrows(IllegalStateException.class, company::snapshot);
+
+        try (var reopened = EventSourcedCompany.open(directory, START, 1_000)) {
+            assertEquals(commands, reopened.getCommandCount());
+            assertEquals(balance,
+                    reopened.getCompany().findByNumber("S1").getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenFileThatIsNotCommandLog_whenReplaying_thenThrowsIllegalArgumentException() throws Exception {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IllegalArgumentException.class, () -> EventSourcedCompany.replay(file));
+    }
+
+    private static void assertSameState(InsuranceCompany expected, InsuranceCompany actual) {
+        assertEquals(expected.getCurrentTime(), actual.getCurrentTime());
+        assertEquals(numbers(expected.getContracts()), numbers(actual.getContracts()));
+        for (AbstractContract contract : all(expected)) {
+            AbstractContract copy = find(actual, contract.getContractNumber());
+            assertEquals(contract.isActive(), copy.isActive(), contract.getContractNumber());
+            assertEquals(expected.getHandler().getLedger().total(contract), actual.getHandler().getLedger().total(copy));
+            if (contract.getContractPaymentData() != null) {
+                assertEquals(contract.getContractPaymentData().getOutstandingBalance(),
+                        copy.getContractPaymentData().getOutstandingBalance());
+                assertEquals(contract.getContractPaymentData().getNextPaymentTime(),
+                        copy.getContractPaymentData().getNextPaymentTime());
+            }
+        }
+        for (String id : List.of("7201011235", "8001011238", "0001011230", "132453")) {
+            assertEquals(expected.findPersonById(id).getPaidOutAmount(), actual.findPersonById(id).getPaidOutAmount());
+        }
+    }
+
+    private static List<AbstractContract> all(InsuranceCompany company) {
+        List<AbstractContract> contracts = new ArrayList<>();
+        for (AbstractContract contract : company.getContracts()) {
+            contracts.add(contract);
+            if (contract instanceof MasterVehicleContract master) contracts.addAll(master.getChildContracts());
+        }
+        return contracts;
+    }
+
+    private static AbstractContract find(InsuranceCompany company, String contractNumber) {
+        for (AbstractContract contract : all(company)) {
+            if (contract.getContractNumber().equals(contractNumber)) return contract;
+        }
+        throw new AssertionError(contractNumber);
+    }
+
+    private static List<String> numbers(Iterable<? extends AbstractContract> contracts) {
+        List<String> numbers = new ArrayList<>();
+        for (AbstractContract contract : contracts) {
+            numbers.add(contract.getContractNumber());
+        }
+        return numbers;
+    }
+}
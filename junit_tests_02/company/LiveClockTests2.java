@@ -0,0 +1,76 @@
+package company;
+
+import contracts.AbstractContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveClockTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 10, 12, 0);
+
+    InsuranceCompany insuranceCompany;
+    Person policyHolder;
+    List<String> accruals;
+
+    @BeforeEach
+    public void setUp() {
+        insuranceCompany = new InsuranceCompany(START);
+        policyHolder = new Person("7201011235");
+        accruals = new ArrayList<>();
+    }
+
+    private AbstractContract insure(String contractNumber, PremiumPaymentFrequency frequency) {
+        return insuranceCompany.insureVehicle(contractNumber, null, policyHolder, 100, frequency,
+                new Vehicle("BA111PZ", 1000));
+    }
+
+    @Test
+    public void givenLiveClockDisabled_whenSettingCurrentTime_thenNothingIsCharged() {
+        var contract = insure("C1", PremiumPaymentFrequency.MONTHLY);
+
+        insuranceCompany.setCurrentTime(START.plusMonths(2));
+
+        assertFalse(insuranceCompany.isLiveClock());
+        assertEquals(100, contract.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenLiveClockEnabled_whenSettingCurrentTime_thenDueContractsAreCharged() {
+        var monthly = insure("C1", PremiumPaymentFrequency.MONTHLY);
+        var quarterly = insure("C2", PremiumPaymentFrequency.QUARTERLY);
+        insuranceCompany.setLiveClock(true);
+
+        insuranceCompany.setCurrentTime(START.plusMonths(2));
+
+        assertEquals(300, monthly.getContractPaymentData().getOutstandingBalance());
+        assertEquals(100, quarterly.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenListener_whenAdvancingInSteps_thenEachAccrualIsReported() {
+        insure("C1", PremiumPaymentFrequency.MONTHLY);
+        insure("C2", PremiumPaymentFrequency.QUARTERLY);
+        insuranceCompany.setLiveClock(true);
+        insuranceCompany.addAccrualListener((contract, periods, amount) ->
+                accruals.add(contract.getContractNumber() + ":" + periods + ":" + amount));
+
+        insuranceCompany.setCurrentTime(START.plusDays(20));
+        insuranceCompany.setCurrentTime(START.plusMonths(1));
+        insuranceCompany.setCurrentTime(START.plusMonths(3).plusDays(1));
+
+        assertEquals(List.of("C1:1:100", "C1:2:200", "C2:1:100"), accruals);
+    }
+
+    @Test
+    public void givenListenerIsNull_whenAddingListener_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> insuranceCompany.addAccrualListener(null));
+    }
+}
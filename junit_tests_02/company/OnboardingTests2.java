@@ -0,0 +1,144 @@
+package company;
+
+import contracts.AbstractContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OnboardingTests2 {
+    private static final PremiumPaymentFrequency[] FREQUENCIES = PremiumPaymentFrequency.values();
+
+    InsuranceCompany insurer;
+    Person holder;
+    Person traveller;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 31, 12, 0));
+        holder = new Person("7201011235");
+        traveller = new Person("0001011230");
+    }
+
+    private static ContractProposal proposal(int i, Person holder, Person traveller) {
+        PremiumPaymentFrequency frequency = FREQUENCIES[i % FREQUENCIES.length];
+        if (i % 5 == 0) {
+            return ContractProposal.travel("T" + i, holder, 20 + i % 50, frequency, Set.of(traveller));
+        }
+        return ContractProposal.vehicle("V" + i, null, holder, 20 + i % 50, frequency,
+                new Vehicle("BA" + String.format("%05d", i), 1000));
+    }
+
+    @Test
+    public void givenValidProposals_whenInsuringAll_thenContractsMatchPerCallPath() {
+        var reference = new InsuranceCompany(insurer.getCurrentTime());
+        List<ContractProposal> proposals = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            proposals.add(proposal(i, holder, traveller));
+            ContractProposal p = proposal(i, holder, traveller);
+            if (p.isTravel()) {
+                reference.insurePersons(p.getContractNumber(), p.getPolicyHolder(), p.getProposedPremium(),
+                        p.getProposedPaymentFrequency(), p.getPersonsToInsure());
+            } else {
+                reference.insureVehicle(p.getContractNumber(), p.getBeneficiary(), p.getPolicyHolder(),
+                        p.getProposedPremium(), p.getProposedPaymentFrequency(), p.getVehicleToInsure());
+            }
+        }
+
+        OnboardingResult result = insurer.insureAll(proposals.stream());
+
+        assertEquals(5000, result.getCreated().size());
+        assertTrue(result.getRejected().isEmpty());
+        assertEquals(5000, insurer.getContracts().size());
+        for (AbstractContract contract : result.getCreated()) {
+            var expected = reference.findByNumber(contract.getContractNumber());
+            assertEquals(expected.getClass(), contract.getClass());
+            assertEquals(expected.getCoverageAmount(), contract.getCoverageAmount());
+            assertEquals(expected.getContractPaymentData().getOutstandingBalance(),
+                    contract.getContractPaymentData().getOutstandingBalance());
+            assertEquals(expected.getContractPaymentData().getNextPaymentTime(),
+                    contract.getContractPaymentData().getNextPaymentTime());
+            assertTrue(holder.getContracts().contains(contract));
+        }
+    }
+
+    @Test
+    public void givenInvalidProposals_whenInsuringAll_thenEachIsRejectedWithReason() {
+        insurer.insureVehicle("V1", null, holder, 100, PremiumPaymentFrequency.MONTHLY, new Vehicle("BA11111", 1000));
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.REJECT);
+        var existing = ContractProposal.vehicle("V1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA22222", 1000));
+        var zeroPremium = ContractProposal.vehicle("V2", null, holder, 0, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA33333", 1000));
+        var cheap = ContractProposal.vehicle("V3", null, holder, 1, PremiumPaymentFrequency.ANNUAL,
+                new Vehicle("BA44444", 100_000));
+        var samePlate = ContractProposal.vehicle("V4", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA11111", 1000));
+        var noPersons = ContractProposal.travel("T1", holder, 100, PremiumPaymentFrequency.MONTHLY, Set.of());
+        var sameHolder = ContractProposal.vehicle("V5", holder, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA55555", 1000));
+        var valid = ContractProposal.vehicle("V6", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA66666", 1000));
+        var duplicateInBatch = ContractProposal.vehicle("V6", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA77777", 1000));
+
+        var noVehicle = ContractProposal.vehicle("V7", null, holder, 100, PremiumPaymentFrequency.MONTHLY, null);
+
+        OnboardingResult result = insurer.insureAll(Stream.of(existing, zeroPremium, cheap, samePlate, noPersons,
+                sameHolder, valid, duplicateInBatch, noVehicle, zeroPremium));
+
+        assertEquals(List.of(insurer.findByNumber("V6")), result.getCreated());
+        assertEquals(9, result.getRejected().size());
+        assertEquals("Contract with this number already exists", result.getRejected().get(0));
+        assertEquals("Proposed premium must be greater than zero", result.getRejected().get(1));
+        assertEquals("Total premium value must be at least 2% of the vehicle's original value",
+                result.getRejected().get(2));
+        assertEquals("Vehicle with this license plate is already insured", result.getRejected().get(3));
+        assertEquals("Persons to insure cannot be null or empty", result.getRejected().get(4));
+        assertEquals("Beneficiary cannot be the same as policy holder.", result.getRejected().get(5));
+        assertEquals("Contract with this number already exists", result.getRejected().get(7));
+        assertEquals("Vehicle to insure cannot be null", result.getRejected().get(8));
+        assertEquals("Proposed premium must be greater than zero", result.getRejected().get(9));
+        assertEquals(10, result.getProposalCount());
+    }
+
+    @Test
+    public void givenLargeBatchAfterExistingContracts_whenInsuringAll_thenLookupsStillWork() {
+        insurer.insureVehicle("V0", null, holder, 100, PremiumPaymentFrequency.MONTHLY, new Vehicle("BA00000", 1000));
+
+        insurer.insureAll(IntStream.range(1, 20_000).mapToObj(i -> proposal(i, holder, traveller)));
+
+        assertEquals(20_000, insurer.getContracts().size());
+        assertNotNull(insurer.findByNumber("V0"));
+        assertNotNull(insurer.findByNumber("T19995"));
+        assertEquals(1, insurer.findByLicensePlate("BA19999").size());
+    }
+
+    @Test
+    public void givenNullProposal_whenInsuringAll_thenItIsRejectedAndBatchContinues() {
+        var valid = ContractProposal.vehicle("V1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA11111", 1000));
+
+        OnboardingResult result = insurer.insureAll(Arrays.asList(null, valid).stream());
+
+        assertEquals(List.of(insurer.findByNumber("V1")), result.getCreated());
+        assertEquals(Map.of(0, "Proposal cannot be null"), result.getRejected());
+    }
+
+    @Test
+    public void givenNullStream_whenInsuringAll_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> insurer.insureAll(null));
+    }
+}
@@ -0,0 +1,111 @@
+package company;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelBillingTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    private static InsuranceCompany buildPortfolio(int size) {
+        var insurer = new InsuranceCompany(START);
+        var legalHolder = new Person("132453");
+        var naturalHolder = new Person("7201011235");
+        var frequencies = PremiumPaymentFrequency.values();
+        var master = insurer.createMasterVehicleContract("M0", null, legalHolder);
+
+        for (int i = 0; i < size; i++) {
+            insurer.setCurrentTime(START.plusDays(i % 400));
+            var frequency = frequencies[i % frequencies.length];
+            if (i % 7 == 0) {
+                var child = insurer.insureVehicle("V" + i, null, legalHolder, 50 + i % 13,
+                        frequency, new Vehicle("BA111PZ", 1000));
+                master.requestAdditionOfChildContract(child);
+            } else if (i % 5 == 0) {
+                insurer.insurePersons("T" + i, naturalHolder, 20 + i % 11, frequency,
+                        Set.of(new Person("7201011235")));
+            } else {
+                var contract = insurer.insureVehicle("V" + i, null, naturalHolder, 50 + i % 17,
+                        frequency, new Vehicle("BA111PZ", 1000));
+                if (i % 11 == 0) contract.setInactive();
+            }
+        }
+        insurer.setCurrentTime(START.plusYears(3).plusDays(17));
+        return insurer;
+    }
+
+    private static List<Integer> balances(InsuranceCompany insurer) {
+        List<Integer> balances = new ArrayList<>();
+        for (AbstractContract contract : insurer.getContracts()) {
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : master.getChildContracts()) {
+                    balances.add(child.getContractPaymentData().getOutstandingBalance());
+                }
+            } else {
+                balances.add(contract.getContractPaymentData().getOutstandingBalance());
+            }
+        }
+        return balances;
+    }
+
+    @Test
+    public void givenSamePortfolio_whenChargingInParallel_thenBalancesMatchSerialRun() {
+        var serial = buildPortfolio(5000);
+        var parallel = buildPortfolio(5000);
+        List<Integer> before = balances(parallel);
+
+        serial.chargePremiumsOnContracts();
+        BillingSummary summary = parallel.chargePremiumsOnContracts(new ForkJoinPool(4));
+
+        List<Integer> after = balances(parallel);
+        assertEquals(balances(serial), after);
+
+        long totalAmount = 0;
+        long contractsCharged = 0;
+        for (int i = 0; i < after.size(); i++) {
+            totalAmount += after.get(i) - before.get(i);
+            if (!after.get(i).equals(before.get(i))) contractsCharged++;
+        }
+        assertEquals(totalAmount, summary.getTotalAmount());
+        assertEquals(contractsCharged, summary.getContractsCharged());
+        assertTrue(summary.getPeriodsAccrued() >= summary.getContractsCharged());
+    }
+
+    @Test
+    public void givenChildAlsoListedAtTopLevel_whenChargingInParallel_thenChildIsChargedOnce() {
+        var insurer = new InsuranceCompany(START);
+        var legalHolder = new Person("132453");
+        var child = insurer.insureVehicle("V1", null, legalHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+        insurer.getContracts().add(child);
+
+        insurer.setCurrentTime(START.plusMonths(2));
+        BillingSummary summary = insurer.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+
+        assertEquals(300, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(1, summary.getContractsCharged());
+        assertEquals(2, summary.getPeriodsAccrued());
+        assertEquals(200, summary.getTotalAmount());
+    }
+
+    @Test
+    public void givenPoolIsNull_whenChargingInParallel_thenThrowsIllegalArgumentException() {
+        var insurer = new InsuranceCompany(START);
+
+        assertThrows(IllegalArgumentException.class, () -> insurer.chargePremiumsOnContracts(null));
+    }
+}
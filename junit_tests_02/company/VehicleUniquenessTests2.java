@@ -0,0 +1,89 @@
+package company;
+
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VehicleUniquenessTests2 {
+    InsuranceCompany insurer;
+    Person holder;
+    Person legalHolder;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        holder = new Person("7201011235");
+        legalHolder = new Person("132453");
+    }
+
+    private SingleVehicleContract insure(String contractNumber, Person policyHolder, String plate) {
+        return insurer.insureVehicle(contractNumber, null, policyHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle(plate, 1000));
+    }
+
+    @Test
+    public void givenDefaultPolicy_whenInsuringSamePlateTwice_thenBothAreAccepted() {
+        insure("S1", holder, "BA111PZ");
+        insure("S2", holder, "BA111PZ");
+
+        assertEquals(VehicleUniquenessPolicy.ALLOW, insurer.getVehicleUniquenessPolicy());
+        assertTrue(insurer.getFlaggedVehicleContracts().isEmpty());
+    }
+
+    @Test
+    public void givenRejectPolicy_whenInsuringActivePlateAgain_thenThrowsIllegalArgumentException() {
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.REJECT);
+        var child = insure("C1", legalHolder, "BA111PZ");
+        insurer.createMasterVehicleContract("M1", null, legalHolder).requestAdditionOfChildContract(child);
+
+        assertThrows(IllegalArgumentException.class, () -> insure("S2", holder, "BA111PZ"));
+        assertFalse(insurer.getContracts().stream().anyMatch(c -> c.getContractNumber().equals("S2")));
+    }
+
+    @Test
+    public void givenRejectPolicy_whenPreviousContractIsInactive_thenPlateCanBeInsuredAgain() {
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.REJECT);
+        insure("S1", holder, "BA111PZ").setInactive();
+
+        assertDoesNotThrow(() -> insure("S2", holder, "BA111PZ"));
+    }
+
+    @Test
+    public void givenFlagPolicy_whenInsuringActivePlateAgain_thenContractIsFlagged() {
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.FLAG);
+        insure("S1", holder, "BA111PZ");
+        var duplicate = insure("S2", holder, "BA111PZ");
+        insure("S3", holder, "BA222PZ");
+
+        assertEquals(Set.of(duplicate), insurer.getFlaggedVehicleContracts());
+    }
+
+    @Test
+    public void givenExistingDuplicates_whenAuditing_thenOnlyActiveDuplicatesAreReported() {
+        var first = insure("S1", holder, "BA111PZ");
+        var child = insure("C1", legalHolder, "BA111PZ");
+        insurer.createMasterVehicleContract("M1", null, legalHolder).requestAdditionOfChildContract(child);
+        insure("S2", holder, "BA222PZ");
+        insure("S3", holder, "BA222PZ").setInactive();
+
+        Map<String, List<SingleVehicleContract>> duplicates = insurer.auditDuplicateVehicles();
+
+        assertEquals(Set.of("BA111PZ"), duplicates.keySet());
+        assertEquals(Set.of(first, child), Set.copyOf(duplicates.get("BA111PZ")));
+    }
+
+    @Test
+    public void givenNullPolicy_whenSetting_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> insurer.setVehicleUniquenessPolicy(null));
+    }
+}
@@ -0,0 +1,101 @@
+package contracts;
+
+import company.InsuranceCompany;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MasterVehicleAggregateTests2 {
+    private InsuranceCompany insurer;
+    private MasterVehicleContract master;
+    private SingleVehicleContract child1;
+    private SingleVehicleContract child2;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        var legalHolder = new Person("132453");
+        master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        child1 = insurer.insureVehicle("C1", null, legalHolder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        child2 = insurer.insureVehicle("C2", null, legalHolder, 40,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 3000));
+        master.requestAdditionOfChildContract(child1);
+        master.requestAdditionOfChildContract(child2);
+    }
+
+    @Test
+    public void givenChildrenAdded_whenReadingAggregates_thenTheyCoverAllChildren() {
+        assertEquals(2, master.getActiveChildCount());
+        assertEquals(child1.getCoverageAmount() + child2.getCoverageAmount(), master.getTotalCoverageAmount());
+        assertEquals(child1.getContractPaymentData().getOutstandingBalance()
+                + child2.getContractPaymentData().getOutstandingBalance(), master.getTotalOutstandingBalance());
+    }
+
+    @Test
+    public void givenChildrenDeactivatedOneByOne_whenCheckingMaster_thenActiveOnlyWhileAnyChildIsActive() {
+        child1.setInactive();
+        child1.setInactive();
+        assertEquals(1, master.getActiveChildCount());
+        assertTrue(master.isActive());
+
+        child2.setInactive();
+        assertEquals(0, master.getActiveChildCount());
+        assertFalse(master.isActive());
+    }
+
+    @Test
+    public void givenPaymentsAndBilling_whenReadingTotalBalance_thenItFollowsChildBalances() {
+        master.pay(90);
+        insurer.setCurrentTime(LocalDateTime.of(2025, 3, 15, 0, 0));
+        insurer.chargePremiumsOnContracts();
+        child2.setCoverageAmount(500);
+
+        assertEquals(child1.getContractPaymentData().getOutstandingBalance()
+                + child2.getContractPaymentData().getOutstandingBalance(), master.getTotalOutstandingBalance());
+        assertEquals(child1.getCoverageAmount() + 500, master.getTotalCoverageAmount());
+    }
+
+    @Test
+    public void givenChildRemovedDirectly_whenReadingAggregates_thenChildIsNoLongerCounted() {
+        master.getChildContracts().remove(child1);
+        child1.getContractPaymentData().setOutstandingBalance(1_000);
+
+        assertEquals(1, master.getActiveChildCount());
+        assertEquals(child2.getContractPaymentData().getOutstandingBalance(), master.getTotalOutstandingBalance());
+        assertEquals(child2.getCoverageAmount(), master.getTotalCoverageAmount());
+    }
+
+    @Test
+    public void givenInactiveChildAddedDirectly_whenCheckingMaster_thenItIsNotCountedAsActive() {
+        var legalHolder = master.getPolicyHolder();
+        var inactive = new SingleVehicleContract("C3", insurer, null, legalHolder,
+                child1.getContractPaymentData(), 10, new Vehicle("BA333PZ", 100));
+        inactive.setInactive();
+        child1.setInactive();
+        child2.setInactive();
+        master.getChildContracts().add(inactive);
+
+        assertEquals(0, master.getActiveChildCount());
+        assertFalse(master.isActive());
+    }
+
+    @Test
+    public void givenActiveChildSwappedForInactiveDirectly_whenCheckingMaster_thenItIsNotActive() {
+        var inactive = new SingleVehicleContract("C3", insurer, null, master.getPolicyHolder(),
+                child1.getContractPaymentData(), 10, new Vehicle("BA333PZ", 100));
+        inactive.setInactive();
+        child2.setInactive();
+        master.getChildContracts().remove(child1);
+        master.getChildContracts().add(inactive);
+
+        assertEquals(0, master.getActiveChildCount());
+        assertFalse(master.isActive());
+    }
+}
@@ -0,0 +1,57 @@
+package objects;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdClassifierTests2 {
+    private static final char[] ALPHABET = {'0', '1', '2', '5', '6', '9', 'a', ' ', '-', '٣', '०'};
+
+    private static LegalForm classifyByPerson(String id) {
+        if (Person.isValidBirthNumber(id)) return LegalForm.NATURAL;
+        if (Person.isValidRegistrationNumber(id)) return LegalForm.LEGAL;
+        return null;
+    }
+
+    @Test
+    public void givenEveryDatePrefix_whenClassifying_thenMatchesPersonChecks() {
+        char[] prefix = new char[6];
+        for (int value = 0; value < 1_000_000; value++) {
+            for (int i = 5, rest = value; i >= 0; i--, rest /= 10) {
+                prefix[i] = (char) ('0' + rest % 10);
+            }
+            String date = new String(prefix);
+            for (String suffix : new String[]{"", "00", "123", "4321"}) {
+                String id = date + suffix;
+                assertEquals(classifyByPerson(id), IdClassifier.classify(id), id);
+            }
+        }
+    }
+
+    @Test
+    public void givenRandomStrings_whenClassifying_thenMatchesPersonChecks() {
+        Random random = new Random(7);
+        for (int run = 0; run < 500_000; run++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = random.nextInt(10) < 8 ? (char) ('0' + random.nextInt(10)) : ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String value = new String(chars);
+            assertEquals(classifyByPerson(value), IdClassifier.classify(value), value);
+        }
+    }
+
+    @Test
+    public void givenKnownIds_whenClassifying_thenLegalFormIsReturned() {
+        assertEquals(LegalForm.NATURAL, IdClassifier.classify("7201011235"));
+        assertEquals(LegalForm.NATURAL, IdClassifier.classify("040229123"));
+        assertNull(IdClassifier.classify("000229123"));
+        assertNull(IdClassifier.classify("540101123"));
+        assertEquals(LegalForm.LEGAL, IdClassifier.classify("132453"));
+        assertEquals(LegalForm.LEGAL, IdClassifier.classify("12345678"));
+        assertNull(IdClassifier.classify(""));
+        assertNull(IdClassifier.classify(null));
+    }
+}
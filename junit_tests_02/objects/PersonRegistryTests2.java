@@ -0,0 +1,105 @@
+package objects;
+
+import company.InsuranceCompany;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonRegistryTests2 {
+    PersonRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new PersonRegistry();
+    }
+
+    @Test
+    public void givenSameId_whenGettingOrCreating_thenSameInstanceIsReturned() {
+        Person first = registry.getOrCreate("7201011235");
+
+        assertSame(first, registry.getOrCreate("7201011235"));
+        assertSame(first, registry.intern(new Person("7201011235")));
+        assertSame(first, registry.find("7201011235"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void givenConcurrentCallers_whenGettingOrCreating_thenOnlyOneInstanceExists() {
+        Set<Person> seen = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 10_000).parallel().forEach(i -> seen.add(registry.getOrCreate("132453")));
+
+        assertEquals(1, seen.size());
+        assertSame(registry.find("132453"), seen.iterator().next());
+    }
+
+    @Test
+    public void givenInvalidId_whenGettingOrCreating_thenThrowsIllegalArgumentExceptionAndNothingIsStored() {
+        assertThrows(IllegalArgumentException.class, () -> registry.getOrCreate("12345"));
+        assertThrows(IllegalArgumentException.class, () -> registry.getOrCreate(null));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void givenRemovedPerson_whenFinding_thenReturnsNull() {
+        Person person = registry.getOrCreate("132453");
+
+        assertFalse(registry.remove(new Person("7201011235")));
+        assertTrue(registry.remove(person));
+        assertNull(registry.find("132453"));
+    }
+
+    @Test
+    public void givenInsuredContracts_whenFindingPersonById_thenInsurerResolvesFirstInstance() {
+        var insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        var holder = new Person("7201011235");
+        var beneficiary = new Person("8001011238");
+        var traveller = new Person("0001011230");
+        var contract = insurer.insureVehicle("S1", beneficiary, holder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        insurer.insurePersons("T1", new Person("7201011235"), 100, PremiumPaymentFrequency.MONTHLY, Set.of(traveller));
+        var newBeneficiary = new Person("9001011239");
+        contract.setBeneficiary(newBeneficiary);
+
+        assertSame(holder, insurer.findPersonById("7201011235"));
+        assertSame(beneficiary, insurer.findPersonById("8001011238"));
+        assertSame(traveller, insurer.findPersonById("0001011230"));
+        assertSame(newBeneficiary, insurer.findPersonById("9001011239"));
+        assertNull(insurer.findPersonById("132453"));
+    }
+
+    @Test
+    public void givenTwoInstancesWithSameId_whenInsuring_thenContractsAndPayoutsAreShared() {
+        var insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        var first = new Person("7201011235");
+        var second = new Person("7201011235");
+        var a = insurer.insureVehicle("A", null, first, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA111PZ", 1000));
+        var b = insurer.insureVehicle("B", null, second, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA222PZ", 1000));
+        var travel = insurer.insurePersons("T1", new Person("8001011238"), 100, PremiumPaymentFrequency.MONTHLY,
+                Set.of(new Person("7201011235")));
+        var beneficiaryContract = insurer.insureVehicle("C", null, new Person("9001011239"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA333PZ", 1000));
+        beneficiaryContract.setBeneficiary(new Person("7201011235"));
+
+        insurer.processClaim(b, 100);
+        insurer.processClaim(travel, travel.getInsuredPersons());
+        insurer.processClaim(beneficiaryContract, 100);
+
+        Person canonical = insurer.getPersons().getOrCreate("7201011235");
+        assertSame(first, canonical);
+        assertSame(canonical, b.getPolicyHolder());
+        assertSame(canonical, travel.getInsuredPersons().iterator().next());
+        assertSame(canonical, beneficiaryContract.getBeneficiary());
+        assertEquals(Set.of(a, b), canonical.getContracts());
+        assertEquals(b.getCoverageAmount() + travel.getCoverageAmount() + beneficiaryContract.getCoverageAmount(),
+                canonical.getPaidOutAmount());
+    }
+}
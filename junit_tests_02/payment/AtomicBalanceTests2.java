@@ -0,0 +1,129 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicBalanceTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 31, 8, 0);
+
+    private static void runTogether(List<Runnable> tasks) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (Runnable task : tasks) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+
+    @Test
+    public void givenPaymentsAndAccrualsOnOneContract_whenRunningConcurrently_thenNoUpdateIsLost() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8, 16, 32}) {
+            var insurer = new InsuranceCompany(START);
+            SingleVehicleContract contract = insurer.insureVehicle("S1", null, new Person("7201011235"), 100,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+            ContractPaymentData paymentData = contract.getContractPaymentData();
+            int paymentsPerThread = 2_000;
+
+            List<Runnable> tasks = new ArrayList<>();
+            for (int accruer = 0; accruer < 2; accruer++) {
+                tasks.add(() -> {
+                    for (int month = 1; month <= 24; month++) {
+                        insurer.setCurrentTime(START.plusMonths(month));
+                        insurer.chargePremiumOnContract(contract);
+                    }
+                });
+            }
+            for (int t = 0; t < threads; t++) {
+                boolean throughHandler = t % 2 == 0;
+                tasks.add(() -> {
+                    for (int i = 0; i < paymentsPerThread; i++) {
+                        if (throughHandler) {
+                            contract.pay(3);
+                        } else {
+                            paymentData.addToOutstandingBalance(-3);
+                        }
+                    }
+                });
+            }
+            runTogether(tasks);
+            insurer.chargePremiumOnContract(contract);
+
+            assertEquals(START.plusMonths(25), paymentData.getNextPaymentTime(), "threads " + threads);
+            assertEquals(100 * 25 - 3 * paymentsPerThread * threads, paymentData.getOutstandingBalance(),
+                    "threads " + threads);
+        }
+    }
+
+    @Test
+    public void givenMasterPaymentsAndChildAccruals_whenRunningConcurrently_thenTotalsAddUp() throws Exception {
+        var insurer = new InsuranceCompany(START);
+        var legalHolder = new Person("132453");
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        List<SingleVehicleContract> children = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            var child = insurer.insureVehicle("C" + i, null, legalHolder, 50,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA11" + i + "PZ", 1000));
+            master.requestAdditionOfChildContract(child);
+            children.add(child);
+        }
+        insurer.setCurrentTime(START.plusMonths(12));
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (SingleVehicleContract child : children) {
+            tasks.add(() -> insurer.chargePremiumOnContract(child));
+        }
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    master.pay(7);
+                }
+            });
+        }
+        runTogether(tasks);
+
+        long balances = 0;
+        for (SingleVehicleContract child : children) {
+            balances += child.getContractPaymentData().getOutstandingBalance();
+        }
+        assertEquals(10 * 50 * 13 - 8 * 1_000 * 7, balances);
+        assertEquals(balances, master.getTotalOutstandingBalance());
+    }
+
+    @Test
+    public void givenStaleExpectedBalance_whenComparingAndSetting_thenBalanceIsUnchanged() {
+        var paymentData = new ContractPaymentData(10, PremiumPaymentFrequency.MONTHLY, START, 40);
+
+        assertFalse(paymentData.compareAndSetOutstandingBalance(30, 0));
+        assertTrue(paymentData.compareAndSetOutstandingBalance(40, 15));
+        assertEquals(15, paymentData.getOutstandingBalance());
+        assertEquals(20, paymentData.addToOutstandingBalance(5));
+        assertThrows(ArithmeticException.class, () -> paymentData.addToOutstandingBalanceExact(Integer.MAX_VALUE));
+        assertEquals(20, paymentData.getOutstandingBalance());
+    }
+}
@@ -199,4 +199,14 @@ public class ContractPaymentDataTests2 {
         assertEquals(newPremiumPaymentFrequency, contractPaymentData.getPremiumPaymentFrequency());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenEarlierNextPaymentTime_whenComparingAndSetting_thenThrowsIllegalArgumentException() {
+        ContractPaymentData contractPaymentData = new ContractPaymentData(premium, premiumPaymentFrequency, nextPaymentTime, outstandingBalance);
+        LocalDateTime current = contractPaymentData.getNextPaymentTime();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                contractPaymentData.compareAndSetNextPaymentTime(current, current.minusMonths(1)));
+        assertSame(current, contractPaymentData.getNextPaymentTime());
+        assertTrue(contractPaymentData.compareAndSetNextPaymentTime(current, current.plusMonths(6)));
+    }
+}
@@ -0,0 +1,136 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentBatchTests2 {
+    @TempDir
+    Path directory;
+
+    InsuranceCompany insurer;
+    PaymentHandler paymentHandler;
+    SingleVehicleContract single;
+    SingleVehicleContract child;
+    SingleVehicleContract inactive;
+    MasterVehicleContract master;
+    MasterVehicleContract emptyMaster;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 3, 1, 9, 0));
+        paymentHandler = insurer.getHandler();
+        var legalHolder = new Person("132453");
+        single = insurer.insureVehicle("S1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        inactive = insurer.insureVehicle("S2", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 1000));
+        inactive.setInactive();
+        child = insurer.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA333PZ", 1000));
+        master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+        emptyMaster = insurer.createMasterVehicleContract("M2", null, legalHolder);
+    }
+
+    @Test
+    public void givenMixedBatch_whenPaying_thenEachLineIsReported() {
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest("S1", 40),
+                new PaymentRequest("X1", 10),
+                new PaymentRequest("S1", 0),
+                new PaymentRequest("S2", 10),
+                new PaymentRequest("M1", 100),
+                new PaymentRequest("M2", 10),
+                new PaymentRequest("C1", 5),
+                new PaymentRequest("S1", 20));
+
+        List<PaymentResult> results = paymentHandler.payBatch(requests);
+
+        List<String> reasons = new ArrayList<>();
+        for (PaymentResult result : results) {
+            reasons.add(result.isApplied() ? "applied" : result.getRejectionReason());
+        }
+        assertEquals(List.of("applied", "Unknown contract", "Amount is not positive", "Contract is not active",
+                "applied", "Contract has no child contracts", "applied", "applied"), reasons);
+        assertSame(requests.get(1), results.get(1).getRequest());
+        assertEquals(40, single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(60 - 100 - 5, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(2, paymentHandler.getLedger().count(single));
+        assertEquals(1, paymentHandler.getLedger().count(master));
+        assertEquals(1, paymentHandler.getLedger().count(child));
+    }
+
+    @Test
+    public void givenSameBatch_whenPayingOneByOne_thenBalancesMatch() {
+        var other = new InsuranceCompany(insurer.getCurrentTime());
+        var otherSingle = other.insureVehicle("S1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var legalHolder = new Person("132453");
+        var otherChild = other.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA333PZ", 1000));
+        var otherMaster = other.createMasterVehicleContract("M1", null, legalHolder);
+        otherMaster.requestAdditionOfChildContract(otherChild);
+
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            requests.add(new PaymentRequest(i % 2 == 0 ? "S1" : "M1", 1 + i % 37));
+        }
+        paymentHandler.payBatch(requests);
+        for (PaymentRequest request : requests) {
+            AbstractContract contract = other.findByNumber(request.getContractNumber());
+            if (contract instanceof MasterVehicleContract masterContract) {
+                other.getHandler().pay(masterContract, request.getAmount());
+            } else {
+                other.getHandler().pay(contract, request.getAmount());
+            }
+        }
+
+        assertEquals(otherSingle.getContractPaymentData().getOutstandingBalance(),
+                single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(otherChild.getContractPaymentData().getOutstandingBalance(),
+                child.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenContractNumberTooLongForJournal_whenPaying_thenLineIsRejectedAndBatchContinues() {
+        String longNumber = "L".repeat(PaymentJournal.MAX_CONTRACT_NUMBER_BYTES + 1);
+        insurer.insureVehicle(longNumber, null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA444PZ", 1000));
+        try (var journal = PaymentJournal.open(directory.resolve("payments.journal"), 1)) {
+            paymentHandler.setJournal(journal);
+
+            List<PaymentResult> results = paymentHandler.payBatch(List.of(
+                    new PaymentRequest(longNumber, 10),
+                    new PaymentRequest("S1", 40)));
+
+            assertEquals("Contract number is too long for the payment journal", results.get(0).getRejectionReason());
+            assertTrue(results.get(1).isApplied());
+            assertEquals(1, journal.size());
+            assertEquals(100, insurer.findByNumber(longNumber).getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenRequestsAreNull_whenPaying_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> paymentHandler.payBatch(null));
+    }
+
+    @Test
+    public void givenEmptyContractNumber_whenCreatingRequest_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new PaymentRequest("", 10));
+    }
+}
@@ -0,0 +1,110 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentImporterTests2 {
+    @TempDir
+    Path directory;
+
+    InsuranceCompany insurer;
+    SingleVehicleContract single;
+    SingleVehicleContract child;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 4, 1, 9, 0));
+        var legalHolder = new Person("132453");
+        single = insurer.insureVehicle("S1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        child = insurer.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA333PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+    }
+
+    @Test
+    public void givenDelimitedFile_whenImporting_thenPaymentsAreAppliedAndRejectionsWritten() throws IOException {
+        Path payments = directory.resolve("statement.csv");
+        Path rejections = directory.resolve("rejected.txt");
+        Files.writeString(payments, "S1;40\r\n\nX1;10\nM1; 30\nS1;abc\nS1;-5\nC1;5\nno delimiter\nS1;20");
+
+        ImportReport report = PaymentImporter.delimited(insurer.getHandler(), ';').importFile(payments, rejections);
+
+        assertEquals(8, report.getLinesRead());
+        assertEquals(4, report.getApplied());
+        assertEquals(4, report.getRejected());
+        assertEquals(Files.size(payments), report.getBytesRead());
+        assertEquals(40, single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(60 - 30 - 5, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(List.of("X1;10\tUnknown contract", "S1;abc\tMalformed line",
+                "S1;-5\tAmount is not positive", "no delimiter\tMalformed line"), Files.readAllLines(rejections));
+    }
+
+    @Test
+    public void givenFixedWidthFile_whenImporting_thenPaymentsAreApplied() throws IOException {
+        Path payments = directory.resolve("statement.txt");
+        Files.writeString(payments, "S1        0000000040\nC1        0000000005\n");
+
+        ImportReport report = PaymentImporter.fixedWidth(insurer.getHandler(), 10).importFile(payments, null);
+
+        assertEquals(2, report.getApplied());
+        assertEquals(60, single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(55, child.getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenFileLargerThanBuffer_whenImporting_thenEveryLineIsProcessed() throws IOException {
+        Path payments = directory.resolve("large.csv");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            content.append(i % 2 == 0 ? "S1" : "C1").append(",2\n");
+        }
+        Files.writeString(payments, content);
+
+        ImportReport report = PaymentImporter.delimited(insurer.getHandler(), ',').importFile(payments, null);
+
+        assertEquals(50_000, report.getLinesRead());
+        assertEquals(50_000, report.getApplied());
+        assertEquals(100 - 50_000, single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(60 - 50_000, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(25_000, insurer.getHandler().getLedger().count(child));
+        assertTrue(report.getLinesPerSecond() > 0);
+    }
+
+    @Test
+    public void givenLineLongerThanBuffer_whenImporting_thenItIsRejectedAndImportContinues() throws IOException {
+        Path payments = directory.resolve("statement.csv");
+        Path rejections = directory.resolve("rejected.txt");
+        Files.writeString(payments, "S1;40\n" + "X".repeat(200_000) + ";10\nC1;5\n");
+
+        ImportReport report = PaymentImporter.delimited(insurer.getHandler(), ';').importFile(payments, rejections);
+
+        assertEquals(3, report.getLinesRead());
+        assertEquals(2, report.getApplied());
+        assertEquals(1, report.getRejected());
+        assertEquals(60, single.getContractPaymentData().getOutstandingBalance());
+        assertEquals(55, child.getContractPaymentData().getOutstandingBalance());
+        List<String> rejected = Files.readAllLines(rejections);
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.get(0).endsWith("\tLine is longer than 65536 bytes"));
+    }
+
+    @Test
+    public void givenDigitDelimiter_whenCreatingImporter_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> PaymentImporter.delimited(insurer.getHandler(), '1'));
+    }
+}
@@ -0,0 +1,189 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentJournalTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 2, 3, 14, 30, 15, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    private static InsuranceCompany buildCompany() {
+        var insurer = new InsuranceCompany(START);
+        var legalHolder = new Person("132453");
+        insurer.insureVehicle("S1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var child1 = insurer.insureVehicle("C1", null, legalHolder, 50,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA222PZ", 1000));
+        var child2 = insurer.insureVehicle("C2", null, legalHolder, 70,
+                PremiumPaymentFrequency.QUARTERLY, new Vehicle("BA333PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child1);
+        master.requestAdditionOfChildContract(child2);
+        return insurer;
+    }
+
+    private static int balance(InsuranceCompany insurer, String masterNumber, String childNumber) {
+        var master = (MasterVehicleContract) insurer.findByNumber(masterNumber);
+        for (SingleVehicleContract child : master.getChildContracts()) {
+            if (child.getContractNumber().equals(childNumber)) {
+                return child.getContractPaymentData().getOutstandingBalance();
+            }
+        }
+        throw new AssertionError(childNumber);
+    }
+
+    @Test
+    public void givenJournaledPayments_whenRecoveringFreshCompany_thenBalancesAndHistoryAreRebuilt() {
+        Path file = directory.resolve("payments.journal");
+        var original = buildCompany();
+        try (var journal = PaymentJournal.open(file, 8)) {
+            original.getHandler().setJournal(journal);
+            for (int i = 0; i < 100_000; i++) {
+                original.setCurrentTime(START.plusMinutes(i));
+                original.getHandler().pay(original.findByNumber("S1"), 1 + i % 5);
+                if (i % 3 == 0) original.findByNumber("M1").pay(40 + i % 7);
+            }
+        }
+
+        var recovered = buildCompany();
+        try (var journal = PaymentJournal.open(file, 8)) {
+            assertEquals(100_000 + 33_334, recovered.getHandler().recover(journal));
+        }
+
+        assertEquals(original.findByNumber("S1").getContractPaymentData().getOutstandingBalance(),
+                recovered.findByNumber("S1").getContractPaymentData().getOutstandingBalance());
+        assertEquals(balance(original, "M1", "C1"), balance(recovered, "M1", "C1"));
+        assertEquals(balance(original, "M1", "C2"), balance(recovered, "M1", "C2"));
+        var originalLedger = original.getHandler().getLedger();
+        var recoveredLedger = recovered.getHandler().getLedger();
+        assertEquals(originalLedger.total(original.findByNumber("M1")),
+                recoveredLedger.total(recovered.findByNumber("M1")));
+        assertEquals(originalLedger.payments(original.findByNumber("S1"), START, START.plusMinutes(3)).get(2).getPaymentTime(),
+                recoveredLedger.payments(recovered.findByNumber("S1"), START, START.plusMinutes(3)).get(2).getPaymentTime());
+    }
+
+    @Test
+    public void givenAccrualAfterMasterPayment_whenRecovering_thenChildrenGetTheJournaledShares() {
+        Path file = directory.resolve("payments.journal");
+        var original = buildCompany();
+        try (var journal = PaymentJournal.open(file, 1)) {
+            original.getHandler().setJournal(journal);
+            original.findByNumber("M1").pay(80);
+        }
+        original.setCurrentTime(START.plusMonths(1));
+        original.chargePremiumsOnContracts();
+
+        var recovered = buildCompany();
+        recovered.setCurrentTime(START.plusMonths(1));
+        recovered.chargePremiumsOnContracts();
+        try (var journal = PaymentJournal.open(file, 1)) {
+            assertEquals(3, journal.size());
+            assertTrue(journal.isAllocationAt(0));
+            assertEquals(1, recovered.getHandler().recover(journal));
+        }
+
+        assertEquals(balance(original, "M1", "C1"), balance(recovered, "M1", "C1"));
+        assertEquals(balance(original, "M1", "C2"), balance(recovered, "M1", "C2"));
+    }
+
+    @Test
+    public void givenMasterPaymentWithoutItsRecord_whenRecovering_thenSharesAreDropped() throws Exception {
+        Path file = directory.resolve("payments.journal");
+        try (var journal = PaymentJournal.open(file, 1)) {
+            var insurer = buildCompany();
+            insurer.getHandler().setJournal(journal);
+            insurer.findByNumber("M1").pay(80);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[16 + 2 * PaymentJournal.RECORD_SIZE + 12] ^= 1;
+        Files.write(file, bytes);
+
+        var recovered = buildCompany();
+        try (var journal = PaymentJournal.open(file, 1)) {
+            assertEquals(2, journal.size());
+            assertEquals(0, recovered.getHandler().recover(journal));
+        }
+        assertEquals(50, balance(recovered, "M1", "C1"));
+        assertEquals(70, balance(recovered, "M1", "C2"));
+    }
+
+    @Test
+    public void givenReopenedJournal_whenAppending_thenRecordsAreKept() {
+        Path file = directory.resolve("payments.journal");
+        try (var journal = PaymentJournal.open(file, 1)) {
+            journal.append("C1", START, 10);
+        }
+        try (var journal = PaymentJournal.open(file, 1)) {
+            journal.append("C2", START.plusDays(1), 20);
+
+            assertEquals(2, journal.size());
+            assertEquals("C1", journal.contractNumberAt(0));
+            assertEquals(START, journal.paymentTimeAt(0));
+            assertEquals("C2", journal.contractNumberAt(1));
+            assertEquals(20, journal.amountAt(1));
+        }
+    }
+
+    @Test
+    public void givenCorruptedRecord_whenReopening_thenOnlyRecordsBeforeItAreKept() throws Exception {
+        Path file = directory.resolve("payments.journal");
+        try (var journal = PaymentJournal.open(file, 1)) {
+            journal.append("S1", START, 10);
+            journal.append("S1", START.plusDays(1), 20);
+            journal.append("S1", START.plusDays(2), 30);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[16 + PaymentJournal.RECORD_SIZE + 12] ^= 1;
+        Files.write(file, bytes);
+
+        try (var journal = PaymentJournal.open(file, 1)) {
+            assertEquals(1, journal.size());
+            var insurer = buildCompany();
+            insurer.getHandler().recover(journal);
+
+            assertEquals(10, insurer.getHandler().getLedger().total(insurer.findByNumber("S1")));
+            journal.append("S1", START.plusDays(3), 40);
+            assertEquals(2, journal.size());
+        }
+    }
+
+    @Test
+    public void givenUnknownContractInJournal_whenRecovering_thenThrowsInvalidContractException() {
+        Path file = directory.resolve("payments.journal");
+        try (var journal = PaymentJournal.open(file, 1)) {
+            journal.append("X9", START, 10);
+            var insurer = buildCompany();
+
+            assertThrows(contracts.InvalidContractException.class, () -> insurer.getHandler().recover(journal));
+        }
+    }
+
+    @Test
+    public void givenFileThatIsNotJournal_whenOpening_thenThrowsIllegalArgumentException() throws Exception {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[128]);
+
+        assertThrows(IllegalArgumentException.class, () -> PaymentJournal.open(file, 1));
+    }
+
+    @Test
+    public void givenTooLongContractNumber_whenAppending_thenThrowsIllegalArgumentException() {
+        try (var journal = PaymentJournal.open(directory.resolve("payments.journal"), 1)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append("C".repeat(47), START, 10));
+            assertEquals(0, journal.size());
+        }
+    }
+}
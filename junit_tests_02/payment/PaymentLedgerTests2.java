@@ -0,0 +1,100 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.AbstractContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentLedgerTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    InsuranceCompany insurer;
+    PaymentHandler paymentHandler;
+    AbstractContract contract;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(START);
+        paymentHandler = insurer.getHandler();
+        contract = insurer.insureVehicle("C1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+    }
+
+    @Test
+    public void givenTwoPaymentsAtSameTime_whenRecording_thenLedgerKeepsBoth() {
+        paymentHandler.pay(contract, 30);
+        paymentHandler.pay(contract, 20);
+
+        assertEquals(2, paymentHandler.getLedger().count(contract));
+        assertEquals(50, paymentHandler.getLedger().total(contract));
+        assertEquals(1, paymentHandler.getPaymentHistory().get(contract).size());
+        assertEquals(30, paymentHandler.getPaymentHistory().get(contract).iterator().next().getPaymentAmount());
+    }
+
+    @Test
+    public void givenPaymentsOverTime_whenQueryingRange_thenOnlyPaymentsInRangeAreReturned() {
+        for (int month = 0; month < 6; month++) {
+            insurer.setCurrentTime(START.plusMonths(month));
+            paymentHandler.pay(contract, 10 + month);
+        }
+
+        List<PaymentInstance> payments = paymentHandler.getLedger()
+                .payments(contract, START.plusMonths(2), START.plusMonths(4));
+
+        assertEquals(2, payments.size());
+        assertEquals(12, payments.get(0).getPaymentAmount());
+        assertEquals(13, payments.get(1).getPaymentAmount());
+        assertEquals(25, paymentHandler.getLedger().total(contract, START.plusMonths(2), START.plusMonths(4)));
+        assertEquals(0, paymentHandler.getLedger().total(contract, START.plusMonths(4), START.plusMonths(2)));
+    }
+
+    @Test
+    public void givenPaymentRecordedInPast_whenIteratingHistory_thenPaymentsAreOrderedByTime() {
+        insurer.setCurrentTime(START.plusDays(10));
+        paymentHandler.pay(contract, 10);
+        insurer.setCurrentTime(START.plusDays(5));
+        paymentHandler.pay(contract, 5);
+
+        var amounts = paymentHandler.getPaymentHistory().get(contract).stream()
+                .map(PaymentInstance::getPaymentAmount)
+                .toList();
+
+        assertEquals(List.of(5, 10), amounts);
+        assertEquals(5, paymentHandler.getLedger().total(contract, START, START.plusDays(6)));
+    }
+
+    @Test
+    public void givenPaymentsWithinOneSecond_whenQueryingRange_thenNanosecondsAreKept() {
+        var ledger = paymentHandler.getLedger();
+        ledger.append(contract, START.plusNanos(900), 5);
+        ledger.append(contract, START.plusNanos(100), 7);
+        ledger.append(contract, START.plusNanos(500), 11);
+
+        List<PaymentInstance> payments = ledger.payments(contract, START.plusNanos(100), START.plusNanos(900));
+
+        assertEquals(List.of(START.plusNanos(100), START.plusNanos(500)),
+                payments.stream().map(PaymentInstance::getPaymentTime).toList());
+        assertEquals(18, ledger.total(contract, START, START.plusNanos(900)));
+    }
+
+    @Test
+    public void givenNoPayments_whenQueryingLedger_thenReturnsEmptyResults() {
+        assertEquals(0, paymentHandler.getLedger().count(contract));
+        assertEquals(0, paymentHandler.getLedger().total(contract));
+        assertTrue(paymentHandler.getLedger().payments(contract, START, START.plusYears(1)).isEmpty());
+        assertFalse(paymentHandler.getPaymentHistory().containsKey(contract));
+        assertNull(paymentHandler.getPaymentHistory().get(contract));
+    }
+
+    @Test
+    public void givenNonPositiveAmount_whenAppending_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> paymentHandler.getLedger().append(contract, START, 0));
+    }
+}
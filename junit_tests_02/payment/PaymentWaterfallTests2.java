@@ -0,0 +1,85 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentWaterfallTests2 {
+
+    // round-robin allocation PaymentHandler used before the waterfall, on plain arrays
+    private static void payByRoundRobin(boolean[] active, int[] premiums, int[] balances, int amount) {
+        int remainingAmount = amount;
+        for (int i = 0; i < balances.length; i++) {
+            if (!active[i] || balances[i] <= 0) continue;
+            if (remainingAmount >= balances[i]) {
+                remainingAmount -= balances[i];
+                balances[i] = 0;
+            } else {
+                balances[i] -= remainingAmount;
+                remainingAmount = 0;
+                break;
+            }
+        }
+
+        while (remainingAmount > 0) {
+            int initialAmount = remainingAmount;
+            for (int i = 0; i < balances.length; i++) {
+                if (!active[i]) continue;
+                int payment = Math.min(remainingAmount, premiums[i]);
+                balances[i] -= payment;
+                remainingAmount -= payment;
+                if (remainingAmount == 0) break;
+            }
+            if (remainingAmount == initialAmount) break;
+        }
+    }
+
+    @Test
+    public void givenRandomFleets_whenPayingMaster_thenBalancesMatchRoundRobin() {
+        Random random = new Random(42);
+        var legalHolder = new Person("132453");
+
+        for (int fleetSize : new int[]{1, 2, 10, 100, 1000}) {
+            for (int run = 0; run < 20; run++) {
+                var insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+                var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+                List<SingleVehicleContract> children = new ArrayList<>();
+                boolean[] active = new boolean[fleetSize];
+                int[] premiums = new int[fleetSize];
+                int[] balances = new int[fleetSize];
+
+                for (int i = 0; i < fleetSize; i++) {
+                    var child = insurer.insureVehicle("C" + i, null, legalHolder, 2 + random.nextInt(200),
+                            PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+                    master.requestAdditionOfChildContract(child);
+                    child.getContractPaymentData().setOutstandingBalance(random.nextInt(400) - 100);
+                    children.add(child);
+                }
+                for (int i = 0; i < fleetSize; i++) {
+                    if (i > 0 && random.nextInt(4) == 0) children.get(i).setInactive();
+                    active[i] = children.get(i).isActive();
+                    premiums[i] = children.get(i).getContractPaymentData().getPremium();
+                    balances[i] = children.get(i).getContractPaymentData().getOutstandingBalance();
+                }
+
+                int amount = 1 + random.nextInt(fleetSize * 500);
+                payByRoundRobin(active, premiums, balances, amount);
+                insurer.getHandler().pay(master, amount);
+
+                for (int i = 0; i < fleetSize; i++) {
+                    assertEquals(balances[i], children.get(i).getContractPaymentData().getOutstandingBalance(),
+                            "fleet " + fleetSize + " run " + run + " child " + i);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package payment;
+
+import company.BillingSummary;
+import company.InsuranceCompany;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PortfolioStoreTests2 {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 31, 8, 15, 30, 250_000_000);
+
+    PortfolioStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new PortfolioStore();
+    }
+
+    private static InsuranceCompany buildCompany(PortfolioStore store, List<SingleVehicleContract> created,
+                                                 int contracts, Random random) {
+        var insurer = new InsuranceCompany(START);
+        if (store != null) insurer.usePortfolioStore(store);
+        var legalHolder = new Person("132453");
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        for (int i = 0; i < contracts; i++) {
+            var frequency = PremiumPaymentFrequency.values()[random.nextInt(4)];
+            var contract = insurer.insureVehicle("S" + i, null, legalHolder, 20 + random.nextInt(200),
+                    frequency, new Vehicle("BA111PZ", 1000));
+            if (i % 3 == 0) master.requestAdditionOfChildContract(contract);
+            created.add(contract);
+        }
+        return insurer;
+    }
+
+    @Test
+    public void givenSameOperations_whenUsingStore_thenBalancesAndDueTimesMatchObjectFields() {
+        int contracts = 5_000;
+        List<SingleVehicleContract> plainContracts = new ArrayList<>();
+        List<SingleVehicleContract> storedContracts = new ArrayList<>();
+        var plain = buildCompany(null, plainContracts, contracts, new Random(7));
+        var stored = buildCompany(store, storedContracts, contracts, new Random(7));
+        Random random = new Random(11);
+
+        LocalDateTime time = START;
+        for (int round = 0; round < 40; round++) {
+            time = time.plusDays(1 + random.nextInt(40)).plusNanos(random.nextInt(1_000_000));
+            plain.setCurrentTime(time);
+            stored.setCurrentTime(time);
+            BillingSummary plainSummary = plain.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+            BillingSummary storedSummary = stored.chargePremiumsOnContracts(ForkJoinPool.commonPool());
+            assertEquals(plainSummary.getTotalAmount(), storedSummary.getTotalAmount(), "round " + round);
+            assertEquals(plainSummary.getPeriodsAccrued(), storedSummary.getPeriodsAccrued(), "round " + round);
+
+            for (int p = 0; p < 50; p++) {
+                int i = random.nextInt(contracts);
+                int amount = 1 + random.nextInt(300);
+                plain.getHandler().pay(plainContracts.get(i), amount);
+                stored.getHandler().pay(storedContracts.get(i), amount);
+            }
+        }
+
+        assertEquals(contracts, store.size());
+        long total = 0;
+        for (int i = 0; i < contracts; i++) {
+            ContractPaymentData expected = plainContracts.get(i).getContractPaymentData();
+            ContractPaymentData actual = storedContracts.get(i).getContractPaymentData();
+            assertTrue(actual.isStored());
+            assertEquals(expected.getOutstandingBalance(), actual.getOutstandingBalance(), "contract " + i);
+            assertEquals(expected.getNextPaymentTime(), actual.getNextPaymentTime(), "contract " + i);
+            total += actual.getOutstandingBalance();
+        }
+        assertEquals(total, store.totalOutstandingBalance());
+    }
+
+    @Test
+    public void givenExistingContracts_whenUsingStore_thenDataIsMovedAndMasterTotalsFollow() {
+        var insurer = new InsuranceCompany(START);
+        var legalHolder = new Person("132453");
+        var child = insurer.insureVehicle("C1", null, legalHolder, 60,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000));
+        var master = insurer.createMasterVehicleContract("M1", null, legalHolder);
+        master.requestAdditionOfChildContract(child);
+
+        insurer.usePortfolioStore(store);
+        insurer.setCurrentTime(START.plusMonths(2));
+        insurer.chargePremiumOnContract(master);
+
+        assertTrue(child.getContractPaymentData().isStored());
+        assertEquals(180, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(180, master.getTotalOutstandingBalance());
+        assertEquals(START.plusMonths(1).plusMonths(1).plusMonths(1), child.getContractPaymentData().getNextPaymentTime());
+        assertThrows(IllegalStateException.class, () -> insurer.usePortfolioStore(new PortfolioStore()));
+    }
+
+    @Test
+    public void givenPaymentsRunning_whenSwitchingToStore_thenNoPaymentIsLost() throws Exception {
+        var insurer = new InsuranceCompany(START);
+        List<SingleVehicleContract> contracts = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            contracts.add(insurer.insureVehicle("S" + i, null, new Person(String.format("%06d", 100_000 + i)), 100,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA111PZ", 1000)));
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (SingleVehicleContract contract : contracts) {
+                        insurer.getHandler().pay(contract, 1);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        insurer.usePortfolioStore(store);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (SingleVehicleContract contract : contracts) {
+            assertTrue(contract.getContractPaymentData().isStored());
+            assertEquals(100 - 4 * 50, contract.getContractPaymentData().getOutstandingBalance());
+        }
+        assertEquals(400 * (100 - 4 * 50), store.totalOutstandingBalance());
+    }
+
+    @Test
+    public void givenStoredData_whenAccrualOverflows_thenNothingIsCharged() {
+        var paymentData = new ContractPaymentData(Integer.MAX_VALUE, PremiumPaymentFrequency.MONTHLY, START, 0);
+        paymentData.moveTo(store);
+
+        assertThrows(ArithmeticException.class, () -> paymentData.accrue(START.plusMonths(1)));
+        assertEquals(0, paymentData.getOutstandingBalance());
+        assertEquals(START, paymentData.getNextPaymentTime());
+        assertEquals(1, paymentData.accrue(START.plusDays(1)));
+        assertEquals(START.plusMonths(1), paymentData.getNextPaymentTime());
+    }
+
+    @Test
+    public void givenStoredData_whenComparingAndSettingNextPaymentTime_thenValuesAreCompared() {
+        var paymentData = new ContractPaymentData(10, PremiumPaymentFrequency.QUARTERLY, START, 5);
+        paymentData.moveTo(store);
+        LocalDateTime next = START.plusMonths(3);
+
+        assertTrue(paymentData.compareAndSetNextPaymentTime(LocalDateTime.of(2025, 1, 31, 8, 15, 30, 250_000_000), next));
+        assertFalse(paymentData.compareAndSetNextPaymentTime(START, next.plusMonths(3)));
+        assertEquals(next, paymentData.getNextPaymentTime());
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentData.compareAndSetNextPaymentTime(next, next.plusHours(1)));
+    }
+
+    @Test
+    public void givenStoredData_whenChangingFields_thenViewReflectsStore() {
+        var paymentData = new ContractPaymentData(10, PremiumPaymentFrequency.MONTHLY, START, 5);
+        paymentData.moveTo(store);
+        paymentData.setPremium(25);
+        paymentData.setPremiumPaymentFrequency(PremiumPaymentFrequency.ANNUAL);
+        paymentData.updateNextPaymentTime();
+
+        assertEquals(25, paymentData.getPremium());
+        assertEquals(PremiumPaymentFrequency.ANNUAL, paymentData.getPremiumPaymentFrequency());
+        assertEquals(START.plusYears(1), paymentData.getNextPaymentTime());
+        assertEquals(5, store.totalOutstandingBalance());
+        assertThrows(IllegalStateException.class, () -> paymentData.moveTo(store));
+    }
+
+    @Test
+    public void givenNullStore_whenMoving_thenThrowsIllegalArgumentException() {
+        var paymentData = new ContractPaymentData(10, PremiumPaymentFrequency.MONTHLY, START, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> paymentData.moveTo(null));
+        assertFalse(paymentData.isStored());
+    }
+}
@@ -0,0 +1,100 @@
+package payment;
+
+import company.InsuranceCompany;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PremiumAccrualTests2 {
+
+    // month-by-month loop chargePremiumOnContract used before the closed form
+    private static void chargeByLoop(ContractPaymentData paymentData, LocalDateTime currentTime) {
+        while (paymentData.getNextPaymentTime().isBefore(currentTime) || paymentData.getNextPaymentTime().isEqual(currentTime)) {
+            paymentData.setOutstandingBalance(paymentData.getOutstandingBalance() + paymentData.getPremium());
+            paymentData.updateNextPaymentTime();
+        }
+    }
+
+    @Test
+    public void givenAnyStartDateAndFrequency_whenCharging_thenMatchesMonthByMonthLoop() {
+        var person = new Person("7201011235");
+        var vehicle = new Vehicle("BA111PZ", 1000);
+        List<Long> offsetsInMinutes = List.of(-1L, 0L, 1L, 60L * 24 * 27, 60L * 24 * 31,
+                60L * 24 * 396, 60L * 24 * 365 * 5 + 3, 60L * 24 * 365 * 40);
+
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 0);
+        for (int day = 0; day < 365 * 6; day++) {
+            LocalDateTime nextPaymentTime = start.plusDays(day);
+            for (PremiumPaymentFrequency frequency : PremiumPaymentFrequency.values()) {
+                for (long offset : offsetsInMinutes) {
+                    LocalDateTime currentTime = nextPaymentTime.plusMinutes(offset);
+
+                    var expected = new ContractPaymentData(7, frequency, nextPaymentTime, 3);
+                    chargeByLoop(expected, currentTime);
+
+                    var insurer = new InsuranceCompany(currentTime);
+                    var actual = new ContractPaymentData(7, frequency, nextPaymentTime, 3);
+                    var contract = new SingleVehicleContract("C1", insurer, null, person, actual, 500, vehicle);
+                    insurer.chargePremiumOnContract(contract);
+
+                    String message = nextPaymentTime + " " + frequency + " " + currentTime;
+                    assertEquals(expected.getOutstandingBalance(), actual.getOutstandingBalance(), message);
+                    assertEquals(expected.getNextPaymentTime(), actual.getNextPaymentTime(), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void givenPeriods_whenAdvancing_thenMatchesRepeatedPlusMonths() {
+        for (PremiumPaymentFrequency frequency : PremiumPaymentFrequency.values()) {
+            for (int day = 28; day <= 31; day++) {
+                for (int month = 1; month <= 12; month++) {
+                    if (day > LocalDateTime.of(2024, month, 1, 0, 0).toLocalDate().lengthOfMonth()) continue;
+
+                    LocalDateTime expected = LocalDateTime.of(2024, month, day, 8, 30);
+                    LocalDateTime from = expected;
+                    for (int periods = 0; periods <= 120; periods++) {
+                        assertEquals(expected, PremiumAccrual.advance(from, frequency, periods));
+                        expected = expected.plusMonths(frequency.getValueInMonths());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void givenNextPaymentTimeInFuture_whenCountingPeriods_thenReturnsZero() {
+        var now = LocalDateTime.of(2025, 3, 31, 12, 0);
+
+        assertEquals(0, PremiumAccrual.periodsDue(now.plusNanos(1), PremiumPaymentFrequency.MONTHLY, now));
+        assertEquals(1, PremiumAccrual.periodsDue(now, PremiumPaymentFrequency.MONTHLY, now));
+    }
+
+    @Test
+    public void givenNegativePeriods_whenAdvancing_thenThrowsIllegalArgumentException() {
+        var now = LocalDateTime.of(2025, 3, 31, 12, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PremiumAccrual.advance(now, PremiumPaymentFrequency.ANNUAL, -1));
+    }
+
+    @Test
+    public void givenBalanceWouldOverflow_whenCharging_thenThrowsArithmeticException() {
+        var start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        var insurer = new InsuranceCompany(start.plusYears(100));
+        var paymentData = new ContractPaymentData(Integer.MAX_VALUE / 100, PremiumPaymentFrequency.MONTHLY, start, 0);
+        var contract = new SingleVehicleContract("C1", insurer, null, new Person("7201011235"),
+                paymentData, 500, new Vehicle("BA111PZ", 1000));
+
+        assertThrows(ArithmeticException.class, () -> insurer.chargePremiumOnContract(contract));
+        assertEquals(0, paymentData.getOutstandingBalance());
+        assertEquals(start, paymentData.getNextPaymentTime());
+    }
+}
@@ -0,0 +1,137 @@
+package service;
+
+import company.ContractProposal;
+import company.InsuranceCompany;
+import contracts.InvalidContractException;
+import contracts.SingleVehicleContract;
+import objects.Person;
+import objects.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import payment.PaymentInstance;
+import payment.PremiumPaymentFrequency;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InsuranceServiceTests2 {
+    InsuranceCompany insurer;
+    InsuranceService service;
+    List<String> contractNumbers;
+
+    @BeforeEach
+    public void setUp() {
+        insurer = new InsuranceCompany(LocalDateTime.of(2025, 1, 1, 0, 0));
+        service = new InsuranceService(insurer);
+        contractNumbers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            insurer.insureVehicle("S" + i, null, new Person(String.format("%06d", 100_000 + i)), 100,
+                    PremiumPaymentFrequency.MONTHLY, new Vehicle("BA1" + String.format("%02d", i) + "PZ", 1000));
+            contractNumbers.add("S" + i);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void givenPaymentsOnOneContract_whenSubmitting_thenTheyRunInSubmissionOrder() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            futures.add(service.submit(Command.pay("S0", i)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        List<Integer> recorded = new ArrayList<>();
+        for (PaymentInstance payment : insurer.getHandler().getLedger().payments(insurer.findByNumber("S0"),
+                insurer.getCurrentTime(), insurer.getCurrentTime().plusNanos(1))) {
+            recorded.add(payment.getPaymentAmount());
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, recorded);
+    }
+
+    @Test
+    public void givenManyClients_whenPayingAcrossContracts_thenAllPaymentsAreApplied() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            futures.add(service.submit(Command.pay(contractNumbers.get(i % contractNumbers.size()), 2)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        for (String contractNumber : contractNumbers) {
+            assertEquals(100 - 400 * 2, insurer.findByNumber(contractNumber).getContractPaymentData().getOutstandingBalance());
+        }
+    }
+
+    @Test
+    public void givenIdleService_whenAllCommandsFinished_thenMailboxesAreRetired() throws Exception {
+        service.submit(Command.pay("S1", 5)).join();
+        service.submit(Command.charge("S2")).join();
+        for (int i = 0; i < 100 && service.getActiveMailboxCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, service.getActiveMailboxCount());
+    }
+
+    @Test
+    public void givenFailingCommands_whenSubmitting_thenFutureCompletesExceptionallyAndMailboxKeepsWorking() {
+        var unknown = service.submit(Command.pay("X1", 5));
+        var invalid = service.submit(Command.pay("S3", -5));
+        var created = service.submit(Command.insure(ContractProposal.vehicle("N1", null, new Person("7201011235"), 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle("BA999PZ", 1000)))).join();
+        service.submit(Command.pay("S3", 5)).join();
+
+        var exception = assertThrows(CompletionException.class, unknown::join);
+        assertInstanceOf(InvalidContractException.class, exception.getCause());
+        assertInstanceOf(IllegalArgumentException.class, assertThrows(CompletionException.class, invalid::join).getCause());
+        assertInstanceOf(SingleVehicleContract.class, created);
+        assertEquals(95, insurer.findByNumber("S3").getContractPaymentData().getOutstandingBalance());
+    }
+
+    @Test
+    public void givenContractMovedIntoMaster_whenSubmittingByNumber_thenChildIsFound() {
+        var holder = new Person("132453");
+        var master = insurer.createMasterVehicleContract("M1", null, holder);
+        var child = insurer.insureVehicle("C1", null, holder, 100, PremiumPaymentFrequency.MONTHLY,
+                new Vehicle("BA777PZ", 1000));
+        insurer.moveSingleVehicleContractToMasterVehicleContract(master, child);
+
+        service.submit(Command.pay("C1", 30)).join();
+        service.submit(Command.claim("C1", 100)).join();
+
+        assertSame(child, insurer.findContract("C1"));
+        assertEquals(70, child.getContractPaymentData().getOutstandingBalance());
+        assertEquals(1, insurer.getHandler().getLedger().count(child));
+    }
+
+    @Test
+    public void givenClosedService_whenSubmitting_thenThrowsIllegalStateException() {
+        service.close();
+
+        assertThrows(IllegalStateException.class, () -> service.submit(Command.pay("S0", 1)));
+    }
+
+    @Test
+    public void givenMixedWorkload_whenRunningLoadGenerator_thenReportCoversEveryCommand() {
+        LoadReport report = new LoadGenerator(service, contractNumbers, 11).run(200, 50);
+
+        assertEquals(200 * 50, report.getCommands());
+        assertEquals(0, report.getFailed());
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+        assertTrue(report.getLatencyPercentile(99) <= report.getLatencyPercentile(100));
+        assertTrue(report.getCommandsPerSecond() > 0);
+    }
+}
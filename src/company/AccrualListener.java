@@ -0,0 +1,7 @@
+package company;
+
+import contracts.AbstractContract;
+
+public interface AccrualListener {
+    void premiumAccrued(AbstractContract contract, long periods, long amount);
+}
@@ -0,0 +1,38 @@
+package company;
+
+public class BillingSummary {
+    private long contractsCharged;
+    private long periodsAccrued;
+    private long totalAmount;
+
+    public BillingSummary() {
+        this.contractsCharged = 0;
+        this.periodsAccrued = 0;
+        this.totalAmount = 0;
+    }
+
+    public long getContractsCharged() {
+        return contractsCharged;
+    }
+
+    public long getPeriodsAccrued() {
+        return periodsAccrued;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    void add(long periods, long amount) {
+        if (periods <= 0) return;
+        contractsCharged++;
+        periodsAccrued += periods;
+        totalAmount += amount;
+    }
+
+    void merge(BillingSummary other) {
+        contractsCharged += other.contractsCharged;
+        periodsAccrued += other.periodsAccrued;
+        totalAmount += other.totalAmount;
+    }
+}
@@ -0,0 +1,57 @@
+package company;
+
+import java.time.LocalDateTime;
+
+/*
+ One state change of an InsuranceCompany. amount is the coverage for a created contract, the charged
+ premium, the payment or the claim payout, 0 otherwise. relatedContractNumber is the master a contract
+ was moved into.
+ */
+public class ChangeEvent {
+    private final long sequence;
+    private final ChangeType type;
+    private final String contractNumber;
+    private final String relatedContractNumber;
+    private final LocalDateTime time;
+    private final long amount;
+
+    ChangeEvent(long sequence, ChangeType type, String contractNumber, String relatedContractNumber,
+                LocalDateTime time, long amount) {
+        this.sequence = sequence;
+        this.type = type;
+        this.contractNumber = contractNumber;
+        this.relatedContractNumber = relatedContractNumber;
+        this.time = time;
+        this.amount = amount;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    public String getRelatedContractNumber() {
+        return relatedContractNumber;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + contractNumber + (relatedContractNumber == null ? "" : " -> "
+                + relatedContractNumber) + " " + amount + " at " + time;
+    }
+}
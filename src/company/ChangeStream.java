@@ -0,0 +1,103 @@
+package company;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ Bounded ring buffer of change events. Publishing never blocks: the sequence is claimed with
+ getAndIncrement and the event goes to slot sequence & mask unless a newer event already took it.
+ Every subscription reads the events in sequence order from its own cursor. A subscriber that falls
+ more than capacity events behind skips the overwritten ones and counts them in getLostEvents.
+ */
+public class ChangeStream {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong nextSequence;
+
+    public ChangeStream(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.nextSequence = new AtomicLong(0);
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+
+    // only the insurer publishes, so every event describes a change that happened
+    ChangeEvent publish(ChangeType type, String contractNumber, String relatedContractNumber,
+                               LocalDateTime time, long amount) {
+        if (type == null) throw new IllegalArgumentException("Change type cannot be null");
+        if (contractNumber == null) throw new IllegalArgumentException("Contract number cannot be null");
+
+        long sequence = nextSequence.getAndIncrement();
+        ChangeEvent event = new ChangeEvent(sequence, type, contractNumber, relatedContractNumber, time, amount);
+        int index = (int) (sequence & mask);
+        while (true) {
+            ChangeEvent current = slots.get(index);
+            if (current != null && current.getSequence() > sequence) return event;
+            if (slots.compareAndSet(index, current, event)) return event;
+        }
+    }
+
+    // starts with the next event published
+    public Subscription subscribe() {
+        return new Subscription(nextSequence.get());
+    }
+
+    public class Subscription {
+        private long nextSequence;
+        private long lostEvents;
+
+        private Subscription(long nextSequence) {
+            this.nextSequence = nextSequence;
+            this.lostEvents = 0;
+        }
+
+        public synchronized long getNextSequence() {
+            return nextSequence;
+        }
+
+        public synchronized long getLostEvents() {
+            return lostEvents;
+        }
+
+        // null when the next event has not been published yet
+        public synchronized ChangeEvent poll() {
+            while (true) {
+                ChangeEvent event = slots.get((int) (nextSequence & mask));
+                if (event == null || event.getSequence() < nextSequence) return null;
+                if (event.getSequence() == nextSequence) {
+                    nextSequence++;
+                    return event;
+                }
+
+                long oldestKept = event.getSequence() - mask;
+                lostEvents += oldestKept - nextSequence;
+                nextSequence = oldestKept;
+            }
+        }
+
+        public synchronized int drainTo(Collection<? super ChangeEvent> sink, int maxEvents) {
+            if (sink == null) throw new IllegalArgumentException("Sink cannot be null");
+
+            int drained = 0;
+            ChangeEvent event;
+            while (drained < maxEvents && (event = poll()) != null) {
+                sink.add(event);
+                drained++;
+            }
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package company;
+
+public enum ChangeType {
+    CONTRACT_CREATED, CONTRACT_MOVED, PREMIUM_ACCRUED, PAYMENT_APPLIED, CLAIM_PAID, CONTRACT_DEACTIVATED
+}
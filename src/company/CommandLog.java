@@ -0,0 +1,171 @@
+package company;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ Append-only log of the commands applied to an EventSourcedCompany.
+
+ header:  int magic | int version
+ record:  int payload length | int crc32 of the payload | payload
+
+ Opening the log cuts off a torn or corrupt tail left by a crash, appending continues after the
+ last complete record. Records reach the operating system on every append and the disk on sync.
+ */
+final class CommandLog implements Closeable {
+    private static final int MAGIC = 0x434D444C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer recordHeader;
+    private final CRC32 crc;
+    private long size;
+
+    private CommandLog(FileChannel channel, long size) {
+        this.channel = channel;
+        this.recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        this.crc = new CRC32();
+        this.size = size;
+    }
+
+    static CommandLog open(Path path) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                return new CommandLog(channel, 0);
+            }
+
+            Scan scan = scan(channel, Long.MAX_VALUE, null);
+            channel.truncate(scan.end);
+            channel.position(scan.end);
+            return new CommandLog(channel, scan.records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // hands every complete record from index first on to the consumer, returns how many there are in total
+    static long read(Path path, long first, Consumer<ByteBuffer> consumer) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return scan(channel, first, consumer).records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    void append(ByteBuffer payload) {
+        crc.reset();
+        crc.update(payload.duplicate());
+        recordHeader.clear();
+        recordHeader.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+
+        try {
+            ByteBuffer[] record = {recordHeader, payload};
+            while (payload.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size++;
+    }
+
+    void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    @ help methods
+     */
+    private static Scan scan(FileChannel channel, long first, Consumer<ByteBuffer> consumer) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("File is not a command log");
+        }
+
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).limit(0);
+        channel.position(HEADER_SIZE);
+        long end = HEADER_SIZE;
+        long records = 0;
+
+        while (fill(channel, buffer, RECORD_HEADER_SIZE)) {
+            int length = buffer.getInt(buffer.position());
+            int expectedChecksum = buffer.getInt(buffer.position() + 4);
+            if (length <= 0 || length > channel.size() - end - RECORD_HEADER_SIZE) break;
+            if (buffer.capacity() < RECORD_HEADER_SIZE + length) buffer = grow(buffer, RECORD_HEADER_SIZE + length);
+            if (!fill(channel, buffer, RECORD_HEADER_SIZE + length)) break;
+
+            ByteBuffer payload = buffer.slice(buffer.position() + RECORD_HEADER_SIZE, length);
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if ((int) checksum.getValue() != expectedChecksum) break;
+
+            if (consumer != null && records >= first) consumer.accept(payload);
+            buffer.position(buffer.position() + RECORD_HEADER_SIZE + length);
+            end += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        return new Scan(records, end);
+    }
+
+    // false when the file ends before the buffer holds the requested number of bytes
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+        grown.put(buffer);
+        return grown.flip();
+    }
+
+    private static final class Scan {
+        private final long records;
+        private final long end;
+
+        Scan(long records, long end) {
+            this.records = records;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package company;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import contracts.*;
+import objects.Person;
+import objects.Vehicle;
+import payment.ContractPaymentData;
+import payment.PaymentInstance;
+import payment.PaymentLedger;
+import payment.PremiumPaymentFrequency;
+
+/*
+ Binary image of an InsuranceCompany, written sequentially and restored without the insure* rules.
+
+ header:    int magic | int version | long payload length | int crc32 of the payload
+ payload:   company | persons | contracts | flagged contract numbers | payment history
+ company:   time | byte uniqueness policy | byte live clock
+ persons:   int count, each: string id | int paid out amount
+ contracts: int count, each: byte type | string number | int holder | int beneficiary (-1 for none)
+            | byte active | int coverage, then by type
+              single: payment data | string license plate | int original value
+              travel: payment data | int count of insured persons | int person...
+              master: int count of children | single contract...
+ history:   int count of contracts, each: string number | int count | (time | int amount)...
+ time is long epoch second | int nano, payment data is int premium | byte frequency | time | int balance,
+ strings are short length | UTF-8 bytes and persons are referenced by their position in the table.
+
+ The checksum is verified before anything is built. Writing holds every contract stripe, so payments,
+ claims, moves and new contracts wait for it and the image is consistent. Premium accrual takes no lock:
+ billing while a snapshot is written leaves some contracts charged in the image and others not.
+ */
+public final class CompanySnapshot {
+    private static final int MAGIC = 0x494E5353;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte SINGLE = 0;
+    private static final byte TRAVEL = 1;
+    private static final byte MASTER = 2;
+
+    private CompanySnapshot() {
+    }
+
+    // returns the size of the snapshot file in bytes
+    public static long write(InsuranceCompany insurer, Path path) {
+        if (insurer == null) throw new IllegalArgumentException("Insurance company cannot be null");
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel);
+            insurer.getLocks().lockAll();
+            try {
+                writeCompany(writer, insurer);
+            } finally {
+                insurer.getLocks().unlockAll();
+            }
+            return writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static InsuranceCompany restore(Path path) {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File is not a company snapshot");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("File is not a company snapshot");
+            }
+            if (buffer.getLong(8) != channel.size() - HEADER_SIZE) {
+                throw new IllegalArgumentException("Snapshot is truncated");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(16)) {
+                throw new IllegalArgumentException("Snapshot checksum does not match");
+            }
+
+            return read(buffer.position(HEADER_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    @ help methods
+     */
+    private static void writeCompany(Writer writer, InsuranceCompany insurer) throws IOException {
+        List<AbstractContract> contracts = insurer.snapshotContracts();
+        Map<Person, Integer> persons = collectPersons(contracts);
+
+        writer.time(insurer.getCurrentTime());
+        writer.putByte((byte) insurer.getVehicleUniquenessPolicy().ordinal());
+        writer.putByte((byte) (insurer.isLiveClock() ? 1 : 0));
+
+        writer.putInt(persons.size());
+        for (Person person : persons.keySet()) {
+            writer.string(person.getId());
+            writer.putInt(person.getPaidOutAmount());
+        }
+
+        writer.putInt(contracts.size());
+        for (AbstractContract contract : contracts) {
+            writeContract(writer, contract, persons);
+        }
+
+        List<SingleVehicleContract> flagged;
+        synchronized (insurer.getFlaggedVehicleContracts()) {
+            flagged = new ArrayList<>(insurer.getFlaggedVehicleContracts());
+        }
+        writer.putInt(flagged.size());
+        for (SingleVehicleContract contract : flagged) {
+            writer.string(contract.getContractNumber());
+        }
+
+        writeHistory(writer, insurer.getHandler().getLedger());
+    }
+
+    private static Map<Person, Integer> collectPersons(List<AbstractContract> contracts) {
+        Map<Person, Integer> persons = new LinkedHashMap<>();
+        for (AbstractContract contract : contracts) {
+            addPersons(persons, contract);
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : master.getChildContracts()) {
+                    addPersons(persons, child);
+                }
+            }
+        }
+        return persons;
+    }
+
+    private static void addPersons(Map<Person, Integer> persons, AbstractContract contract) {
+        persons.putIfAbsent(contract.getPolicyHolder(), persons.size());
+        if (contract instanceof AbstractVehicleContract vehicleContract && vehicleContract.getBeneficiary() != null) {
+            persons.putIfAbsent(vehicleContract.getBeneficiary(), persons.size());
+        }
+        if (contract instanceof TravelContract travel) {
+            for (Person person : travel.getInsuredPersons()) {
+                persons.putIfAbsent(person, persons.size());
+            }
+        }
+    }
+
+    private static void writeContract(Writer writer, AbstractContract contract, Map<Person, Integer> persons)
+            throws IOException {
+        byte type = contract instanceof MasterVehicleContract ? MASTER
+                : contract instanceof TravelContract ? TRAVEL : SINGLE;
+        Person beneficiary = contract instanceof AbstractVehicleContract vehicleContract
+                ? vehicleContract.getBeneficiary() : null;
+
+        writer.putByte(type);
+        writer.string(contract.getContractNumber());
+        writer.putInt(persons.get(contract.getPolicyHolder()));
+        writer.putInt(beneficiary == null ? -1 : persons.get(beneficiary));
+        writer.putByte((byte) (contract.isActive() ? 1 : 0));
+        writer.putInt(contract.getCoverageAmount());
+
+        if (contract instanceof MasterVehicleContract master) {
+            writer.putInt(master.getChildContracts().size());
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                writeContract(writer, child, persons);
+            }
+            return;
+        }
+
+        ContractPaymentData paymentData = contract.getContractPaymentData();
+        writer.putInt(paymentData.getPremium());
+        writer.putByte((byte) paymentData.getPremiumPaymentFrequency().ordinal());
+        writer.time(paymentData.getNextPaymentTime());
+        writer.putInt(paymentData.getOutstandingBalance());
+
+        if (contract instanceof TravelContract travel) {
+            writer.putInt(travel.getInsuredPersons().size());
+            for (Person person : travel.getInsuredPersons()) {
+                writer.putInt(persons.get(person));
+            }
+        } else {
+            Vehicle vehicle = ((SingleVehicleContract) contract).getInsuredVehicle();
+            writer.string(vehicle.getLicensePlate());
+            writer.putInt(vehicle.getOriginalValue());
+        }
+    }
+
+    private static void writeHistory(Writer writer, PaymentLedger ledger) throws IOException {
+        List<AbstractContract> paidContracts = new ArrayList<>(ledger.asMap().keySet());
+
+        writer.putInt(paidContracts.size());
+        for (AbstractContract contract : paidContracts) {
+            List<PaymentInstance> payments = ledger.payments(contract, LocalDateTime.MIN, LocalDateTime.MAX);
+            writer.string(contract.getContractNumber());
+            writer.putInt(payments.size());
+            for (PaymentInstance payment : payments) {
+                writer.time(payment.getPaymentTime());
+                writer.putInt(payment.getPaymentAmount());
+            }
+        }
+    }
+
+    private static InsuranceCompany read(ByteBuffer buffer) {
+        InsuranceCompany insurer = new InsuranceCompany(readTime(buffer));
+        insurer.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.values()[buffer.get()]);
+        boolean liveClock = buffer.get() == 1;
+
+        Person[] persons = new Person[buffer.getInt()];
+        for (int i = 0; i < persons.length; i++) {
+            persons[i] = new Person(readString(buffer));
+            int paidOutAmount = buffer.getInt();
+            if (paidOutAmount > 0) persons[i].payout(paidOutAmount);
+        }
+
+        int count = buffer.getInt();
+        List<AbstractContract> contracts = new ArrayList<>(count);
+        Map<String, AbstractContract> byNumber = HashMap.newHashMap(count);
+        for (int i = 0; i < count; i++) {
+            contracts.add(readContract(buffer, insurer, persons, byNumber));
+        }
+        insurer.restoreContracts(contracts);
+
+        int flagged = buffer.getInt();
+        for (int i = 0; i < flagged; i++) {
+            insurer.getFlaggedVehicleContracts().add((SingleVehicleContract) byNumber.get(readString(buffer)));
+        }
+
+        PaymentLedger ledger = insurer.getHandler().getLedger();
+        int paidContracts = buffer.getInt();
+        for (int i = 0; i < paidContracts; i++) {
+            AbstractContract contract = byNumber.get(readString(buffer));
+            int payments = buffer.getInt();
+            for (int p = 0; p < payments; p++) {
+                LocalDateTime paymentTime = readTime(buffer);
+                ledger.append(contract, paymentTime, buffer.getInt());
+            }
+        }
+
+        insurer.setLiveClock(liveClock);
+        return insurer;
+    }
+
+    private static AbstractContract readContract(ByteBuffer buffer, InsuranceCompany insurer, Person[] persons,
+                                                 Map<String, AbstractContract> byNumber) {
+        byte type = buffer.get();
+        String contractNumber = readString(buffer);
+        Person policyHolder = persons[buffer.getInt()];
+        int beneficiaryIndex = buffer.getInt();
+        Person beneficiary = beneficiaryIndex < 0 ? null : persons[beneficiaryIndex];
+        boolean active = buffer.get() == 1;
+        int coverageAmount = buffer.getInt();
+
+        AbstractContract contract;
+        if (type == MASTER) {
+            MasterVehicleContract master = new MasterVehicleContract(contractNumber, insurer, beneficiary, policyHolder);
+            int children = buffer.getInt();
+            for (int i = 0; i < children; i++) {
+                master.attachChildContract((SingleVehicleContract) readContract(buffer, insurer, persons, byNumber));
+            }
+            contract = master;
+        } else {
+            ContractPaymentData paymentData = readPaymentData(buffer);
+            if (type == TRAVEL) {
+                Set<Person> insuredPersons = new LinkedHashSet<>();
+                int insured = buffer.getInt();
+                for (int i = 0; i < insured; i++) {
+                    insuredPersons.add(persons[buffer.getInt()]);
+                }
+                contract = new TravelContract(contractNumber, insurer, policyHolder, paymentData,
+                        coverageAmount, insuredPersons);
+            } else {
+                Vehicle vehicle = new Vehicle(readString(buffer), buffer.getInt());
+                contract = new SingleVehicleContract(contractNumber, insurer, beneficiary, policyHolder,
+                        paymentData, coverageAmount, vehicle);
+            }
+        }
+
+        if (!active) contract.setInactive();
+        byNumber.put(contractNumber, contract);
+        return contract;
+    }
+
+    private static ContractPaymentData readPaymentData(ByteBuffer buffer) {
+        int premium = buffer.getInt();
+        PremiumPaymentFrequency frequency = PremiumPaymentFrequency.values()[buffer.get()];
+        LocalDateTime nextPaymentTime = readTime(buffer);
+        return new ContractPaymentData(premium, frequency, nextPaymentTime, buffer.getInt());
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32 crc;
+        private long length;
+
+        Writer(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.crc = new CRC32();
+            this.length = 0;
+            channel.write(ByteBuffer.allocate(HEADER_SIZE));
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void time(LocalDateTime time) throws IOException {
+            ensure(12);
+            buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(time.getNano());
+        }
+
+        void string(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("String is too long: " + value);
+
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        long finish() throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(length).putInt((int) crc.getValue()).flip();
+            channel.write(header, 0);
+            return HEADER_SIZE + length;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            length += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package company;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import contracts.AbstractContract;
+import contracts.AbstractVehicleContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import contracts.TravelContract;
+import objects.Person;
+
+/*
+ Secondary lookups over registered contracts and the children of registered masters.
+ Entries are added and removed eagerly with the registry; contracts that went inactive or
+ no longer match their key (an insured person removed from a travel contract) are dropped
+ from a bucket the first time a query meets them, so a query costs its bucket size at most once.
+ Updates run under the registry monitor held by the caller. Queries lock it themselves and test the
+ contracts outside it, since a master's isActive takes its stripe. Children are also kept by number
+ for lookups that take no lock at all.
+ */
+class ContractIndex implements ContractRegistryListener {
+    private final ContractRegistry registry;
+    private final Set<AbstractContract> indexed;
+    private final Map<Person, Set<AbstractContract>> byPolicyHolder;
+    private final Map<Person, Set<AbstractVehicleContract>> byBeneficiary;
+    private final Map<String, Set<SingleVehicleContract>> byLicensePlate;
+    private final Map<Person, Set<TravelContract>> byInsuredPerson;
+    private final Map<String, Child> childrenByNumber;
+
+    ContractIndex(ContractRegistry registry) {
+        this.registry = registry;
+        this.indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.byPolicyHolder = new HashMap<>();
+        this.byBeneficiary = new HashMap<>();
+        this.byLicensePlate = new HashMap<>();
+        this.byInsuredPerson = new HashMap<>();
+        this.childrenByNumber = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void contractAdded(AbstractContract contract) {
+        index(contract);
+        if (contract instanceof MasterVehicleContract master) {
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                index(child);
+                childrenByNumber.put(child.getContractNumber(), new Child(child, master));
+            }
+        }
+    }
+
+    @Override
+    public void contractRemoved(AbstractContract contract) {
+        unindex(contract);
+        if (contract instanceof MasterVehicleContract master) {
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                unindex(child);
+                childrenByNumber.remove(child.getContractNumber(), new Child(child, master));
+            }
+        }
+    }
+
+    void index(AbstractContract contract) {
+        if (!indexed.add(contract)) return;
+
+        put(byPolicyHolder, contract.getPolicyHolder(), contract);
+        if (contract instanceof AbstractVehicleContract vehicleContract && vehicleContract.getBeneficiary() != null) {
+            put(byBeneficiary, vehicleContract.getBeneficiary(), vehicleContract);
+        }
+        if (contract instanceof SingleVehicleContract single) {
+            put(byLicensePlate, single.getInsuredVehicle().getLicensePlate(), single);
+        }
+        if (contract instanceof TravelContract travel) {
+            for (Person person : travel.getInsuredPersons()) {
+                put(byInsuredPerson, person, travel);
+            }
+        }
+    }
+
+    void unindex(AbstractContract contract) {
+        if (!indexed.remove(contract)) return;
+
+        remove(byPolicyHolder, contract.getPolicyHolder(), contract);
+        if (contract instanceof AbstractVehicleContract vehicleContract && vehicleContract.getBeneficiary() != null) {
+            remove(byBeneficiary, vehicleContract.getBeneficiary(), vehicleContract);
+        }
+        if (contract instanceof SingleVehicleContract single) {
+            remove(byLicensePlate, single.getInsuredVehicle().getLicensePlate(), single);
+        }
+        if (contract instanceof TravelContract travel) {
+            for (Person person : travel.getInsuredPersons()) {
+                remove(byInsuredPerson, person, travel);
+            }
+        }
+    }
+
+    // called before the child leaves the registry, so a lookup by number finds it in one place or the other
+    void childAttached(MasterVehicleContract master, SingleVehicleContract child) {
+        childrenByNumber.put(child.getContractNumber(), new Child(child, master));
+    }
+
+    SingleVehicleContract findChild(String contractNumber) {
+        Child entry = childrenByNumber.get(contractNumber);
+        return entry == null ? null : entry.contract();
+    }
+
+    MasterVehicleContract findMaster(SingleVehicleContract child) {
+        Child entry = childrenByNumber.get(child.getContractNumber());
+        return entry == null || entry.contract() != child ? null : entry.master();
+    }
+
+    void beneficiaryChanged(AbstractVehicleContract contract, Person previousBeneficiary) {
+        if (!indexed.contains(contract)) return;
+
+        if (previousBeneficiary != null) remove(byBeneficiary, previousBeneficiary, contract);
+        if (contract.getBeneficiary() != null) put(byBeneficiary, contract.getBeneficiary(), contract);
+    }
+
+    Set<AbstractContract> findByPolicyHolder(Person policyHolder) {
+        return collect(byPolicyHolder, policyHolder, contract -> true);
+    }
+
+    Set<AbstractVehicleContract> findByBeneficiary(Person beneficiary) {
+        return collect(byBeneficiary, beneficiary, contract -> beneficiary.equals(contract.getBeneficiary()));
+    }
+
+    Set<SingleVehicleContract> findByLicensePlate(String licensePlate) {
+        return collect(byLicensePlate, licensePlate, contract -> true);
+    }
+
+    // runs under the caller's registry monitor: plate buckets only hold single contracts, whose isActive takes no lock
+    boolean hasActiveVehicle(String licensePlate) {
+        Set<SingleVehicleContract> bucket = byLicensePlate.get(licensePlate);
+        if (bucket == null) return false;
+
+        Iterator<SingleVehicleContract> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isActive()) return true;
+            iterator.remove();
+        }
+        byLicensePlate.remove(licensePlate);
+        return false;
+    }
+
+    Set<TravelContract> findByInsuredPerson(Person person) {
+        return collect(byInsuredPerson, person, contract -> contract.getInsuredPersons().contains(person));
+    }
+
+    /*
+    @ help methods
+     */
+    private <K, C extends AbstractContract> Set<C> collect(Map<K, Set<C>> index, K key, Predicate<C> stillMatches) {
+        Set<C> result = new LinkedHashSet<>();
+        if (key == null) return result;
+
+        List<C> candidates;
+        synchronized (registry) {
+            Set<C> bucket = index.get(key);
+            if (bucket == null) return result;
+            candidates = new ArrayList<>(bucket);
+        }
+
+        List<C> inactive = new ArrayList<>();
+        List<C> mismatched = new ArrayList<>();
+        for (C contract : candidates) {
+            if (!contract.isActive()) {
+                inactive.add(contract);
+            } else if (stillMatches.test(contract)) {
+                result.add(contract);
+            } else {
+                mismatched.add(contract);
+            }
+        }
+        if (inactive.isEmpty() && mismatched.isEmpty()) return result;
+
+        synchronized (registry) {
+            for (C contract : inactive) {
+                remove(index, key, contract);
+            }
+            // may have been moved back to this key since it was tested
+            for (C contract : mismatched) {
+                if (!stillMatches.test(contract)) remove(index, key, contract);
+            }
+        }
+        return result;
+    }
+
+    private static <K, C extends AbstractContract> void put(Map<K, Set<C>> index, K key, C contract) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(contract);
+    }
+
+    private static <K, C extends AbstractContract> void remove(Map<K, Set<C>> index, K key, C contract) {
+        Set<C> bucket = index.get(key);
+        if (bucket == null) return;
+
+        bucket.remove(contract);
+        if (bucket.isEmpty()) index.remove(key);
+    }
+
+    private record Child(SingleVehicleContract contract, MasterVehicleContract master) {
+    }
+}
@@ -0,0 +1,51 @@
+package company;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import contracts.AbstractContract;
+import objects.Person;
+
+/*
+ Striped locks for everything that changes one customer's contracts: payments, claims, premium
+ accrual and moves. A contract is guarded by the stripe of its policy holder, so a master and its
+ children (which must share the holder) always take the same lock.
+ Lock order is stripe first, then the registry or the ledger; never take a stripe while holding those.
+ */
+public class ContractLocks {
+    private static final int STRIPES = 64;
+
+    private final Lock[] stripes;
+
+    public ContractLocks() {
+        this.stripes = new Lock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock lockFor(Person policyHolder) {
+        if (policyHolder == null) throw new IllegalArgumentException("Policy holder cannot be null");
+        int hash = policyHolder.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    public Lock lockFor(AbstractContract contract) {
+        if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+        return lockFor(contract.getPolicyHolder());
+    }
+
+    // every stripe in index order, for work that must see the whole company at rest. Nothing else holds
+    // two stripes, so this cannot deadlock as long as the caller holds none yet
+    void lockAll() {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package company;
+
+import java.util.Set;
+
+import objects.Person;
+import objects.Vehicle;
+import payment.PremiumPaymentFrequency;
+
+public class ContractProposal {
+    private final boolean travel;
+    private final String contractNumber;
+    private final Person beneficiary;
+    private final Person policyHolder;
+    private final int proposedPremium;
+    private final PremiumPaymentFrequency proposedPaymentFrequency;
+    private final Vehicle vehicleToInsure;
+    private final Set<Person> personsToInsure;
+
+    private ContractProposal(boolean travel, String contractNumber, Person beneficiary, Person policyHolder,
+                             int proposedPremium, PremiumPaymentFrequency proposedPaymentFrequency,
+                             Vehicle vehicleToInsure, Set<Person> personsToInsure) {
+        this.travel = travel;
+        this.contractNumber = contractNumber;
+        this.beneficiary = beneficiary;
+        this.policyHolder = policyHolder;
+        this.proposedPremium = proposedPremium;
+        this.proposedPaymentFrequency = proposedPaymentFrequency;
+        this.vehicleToInsure = vehicleToInsure;
+        this.personsToInsure = personsToInsure;
+    }
+
+    public static ContractProposal vehicle(String contractNumber, Person beneficiary, Person policyHolder,
+                                           int proposedPremium, PremiumPaymentFrequency proposedPaymentFrequency,
+                                           Vehicle vehicleToInsure) {
+        return new ContractProposal(false, contractNumber, beneficiary, policyHolder, proposedPremium,
+                proposedPaymentFrequency, vehicleToInsure, null);
+    }
+
+    public static ContractProposal travel(String contractNumber, Person policyHolder, int proposedPremium,
+                                          PremiumPaymentFrequency proposedPaymentFrequency, Set<Person> personsToInsure) {
+        return new ContractProposal(true, contractNumber, null, policyHolder, proposedPremium,
+                proposedPaymentFrequency, null, personsToInsure);
+    }
+
+    public boolean isTravel() {
+        return travel;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    public Person getBeneficiary() {
+        return beneficiary;
+    }
+
+    public Person getPolicyHolder() {
+        return policyHolder;
+    }
+
+    public int getProposedPremium() {
+        return proposedPremium;
+    }
+
+    public PremiumPaymentFrequency getProposedPaymentFrequency() {
+        return proposedPaymentFrequency;
+    }
+
+    public Vehicle getVehicleToInsure() {
+        return vehicleToInsure;
+    }
+
+    public Set<Person> getPersonsToInsure() {
+        return personsToInsure;
+    }
+}
@@ -0,0 +1,175 @@
+package company;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import contracts.AbstractContract;
+
+/*
+ Contracts by number. Adds and removes take the contract's stripe before the monitor, so listeners
+ can read the children of a master while no move can change them.
+ */
+public class ContractRegistry extends AbstractSet<AbstractContract> {
+    private final ContractLocks locks;
+    private final List<ContractRegistryListener> listeners;
+    private Map<String, AbstractContract> contractsByNumber;
+    // written under the monitor together with contractsByNumber, read without it on every payment
+    private final Map<String, AbstractContract> lookup;
+    private int reservedCapacity;
+
+    public ContractRegistry(ContractLocks locks) {
+        if (locks == null) throw new IllegalArgumentException("Locks cannot be null");
+
+        this.locks = locks;
+        this.contractsByNumber = new LinkedHashMap<>();
+        this.lookup = new ConcurrentHashMap<>();
+        this.listeners = new ArrayList<>();
+    }
+
+    public synchronized void addListener(ContractRegistryListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        listeners.add(listener);
+    }
+
+    // rebuilds the table once up front instead of letting it rehash repeatedly while a batch is added
+    public synchronized void ensureCapacity(int expectedSize) {
+        if (expectedSize <= reservedCapacity || expectedSize <= contractsByNumber.size()) return;
+
+        Map<String, AbstractContract> resized = LinkedHashMap.newLinkedHashMap(expectedSize);
+        resized.putAll(contractsByNumber);
+        contractsByNumber = resized;
+        reservedCapacity = expectedSize;
+    }
+
+    public AbstractContract findByNumber(String contractNumber) {
+        if (contractNumber == null) return null;
+        return lookup.get(contractNumber);
+    }
+
+    public boolean containsNumber(String contractNumber) {
+        if (contractNumber == null) return false;
+        return lookup.containsKey(contractNumber);
+    }
+
+    @Override
+    public boolean add(AbstractContract contract) {
+        if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+
+        Lock lock = locks.lockFor(contract);
+        lock.lock();
+        try {
+            synchronized (this) {
+                return addLocked(contract);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // bulk load into a company no other thread can reach yet, so no stripe is taken; false on a taken number
+    synchronized boolean addAllUnshared(List<? extends AbstractContract> added) {
+        for (AbstractContract contract : added) {
+            if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+            if (!addLocked(contract)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof AbstractContract contract)) return false;
+        return contract.equals(lookup.get(contract.getContractNumber()));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof AbstractContract contract)) return false;
+
+        Lock lock = locks.lockFor(contract);
+        lock.lock();
+        try {
+            synchronized (this) {
+                if (!contractsByNumber.remove(contract.getContractNumber(), contract)) return false;
+                lookup.remove(contract.getContractNumber(), contract);
+
+                notifyRemoved(contract);
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public synchronized List<AbstractContract> snapshot() {
+        return new ArrayList<>(contractsByNumber.values());
+    }
+
+    // not synchronized: iterate a snapshot when other threads may change the registry
+    @Override
+    public Iterator<AbstractContract> iterator() {
+        Iterator<AbstractContract> iterator = contractsByNumber.values().iterator();
+        return new Iterator<>() {
+            private AbstractContract current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public AbstractContract next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                lookup.remove(current.getContractNumber(), current);
+
+                Lock lock = locks.lockFor(current);
+                lock.lock();
+                try {
+                    notifyRemoved(current);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized int size() {
+        return contractsByNumber.size();
+    }
+
+    // one contract at a time, each under its own stripe
+    @Override
+    public void clear() {
+        for (AbstractContract contract : snapshot()) {
+            remove(contract);
+        }
+    }
+
+    private boolean addLocked(AbstractContract contract) {
+        if (contractsByNumber.putIfAbsent(contract.getContractNumber(), contract) != null) return false;
+        lookup.put(contract.getContractNumber(), contract);
+
+        for (ContractRegistryListener listener : listeners) {
+            listener.contractAdded(contract);
+        }
+        return true;
+    }
+
+    private void notifyRemoved(AbstractContract contract) {
+        for (ContractRegistryListener listener : listeners) {
+            listener.contractRemoved(contract);
+        }
+    }
+}
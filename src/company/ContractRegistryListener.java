@@ -0,0 +1,9 @@
+package company;
+
+import contracts.AbstractContract;
+
+public interface ContractRegistryListener {
+    void contractAdded(AbstractContract contract);
+
+    void contractRemoved(AbstractContract contract);
+}
@@ -0,0 +1,102 @@
+package company;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import payment.ContractPaymentData;
+
+/*
+ Time-ordered queue of registered contracts keyed by their earliest next payment time
+ (the earliest child for a master). Entries are replaced rather than updated: an entry
+ only counts while it is the one stored in scheduled, older ones are skipped when polled.
+ Keys can only be early, never late, because next payment times only move forward.
+ Everything runs under the registry monitor; schedule also needs the contract's stripe, which guards
+ the children of a master. Polled contracts are not checked for being active, a master's isActive
+ takes its stripe and that is never taken under the monitor.
+ */
+class DueDateIndex implements ContractRegistryListener {
+    private final PriorityQueue<Entry> queue;
+    private final Map<AbstractContract, Entry> scheduled;
+
+    DueDateIndex() {
+        this.queue = new PriorityQueue<>(Comparator.comparing(Entry::due));
+        this.scheduled = new IdentityHashMap<>();
+    }
+
+    @Override
+    public void contractAdded(AbstractContract contract) {
+        schedule(contract);
+    }
+
+    @Override
+    public void contractRemoved(AbstractContract contract) {
+        scheduled.remove(contract);
+    }
+
+    void schedule(AbstractContract contract) {
+        LocalDateTime due = nextDueTime(contract);
+        if (due == null) {
+            scheduled.remove(contract);
+            return;
+        }
+
+        Entry entry = new Entry(due, contract);
+        scheduled.put(contract, entry);
+        queue.add(entry);
+    }
+
+    List<AbstractContract> pollDue(LocalDateTime currentTime) {
+        List<AbstractContract> due = new ArrayList<>();
+
+        while (!queue.isEmpty() && !queue.peek().due().isAfter(currentTime)) {
+            Entry entry = queue.poll();
+            if (scheduled.get(entry.contract()) != entry) continue;
+
+            scheduled.remove(entry.contract());
+            due.add(entry.contract());
+        }
+
+        compactIfStale();
+        return due;
+    }
+
+    int size() {
+        return scheduled.size();
+    }
+
+    /*
+    @ help methods
+     */
+    private static LocalDateTime nextDueTime(AbstractContract contract) {
+        if (contract instanceof MasterVehicleContract master) {
+            LocalDateTime earliest = null;
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                LocalDateTime childDue = child.getContractPaymentData().getNextPaymentTime();
+                if (earliest == null || childDue.isBefore(earliest)) earliest = childDue;
+            }
+            return earliest;
+        }
+
+        ContractPaymentData paymentData = contract.getContractPaymentData();
+        return paymentData == null ? null : paymentData.getNextPaymentTime();
+    }
+
+    // superseded entries of far-future contracts would otherwise pile up in the queue
+    private void compactIfStale() {
+        if (queue.size() <= 2 * scheduled.size() + 64) return;
+
+        queue.clear();
+        queue.addAll(scheduled.values());
+    }
+
+    private record Entry(LocalDateTime due, AbstractContract contract) {
+    }
+}
@@ -0,0 +1,474 @@
+package company;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import contracts.AbstractContract;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import contracts.TravelContract;
+import objects.Person;
+import objects.Vehicle;
+import payment.PremiumPaymentFrequency;
+
+/*
+ InsuranceCompany whose state is the result of its command log. Every command is encoded first and
+ then executed from its encoding, the same way replay executes it, and it is appended to the log
+ only when it succeeded. When the append or the snapshot after it fails, the company may be ahead of
+ the log, so the instance refuses further commands and has to be reopened from the directory. Reopening the directory restores the newest snapshot and replays the
+ commands logged after it, so a crash loses at most the commands the operating system did not write.
+
+ directory: commands.log | company-<number of commands>.snapshot
+ command:   byte type, then by type
+              set time:         time
+              insure vehicle:   string number | string beneficiary | string holder | int premium
+                                | byte frequency | string license plate | int original value
+              insure persons:   string number | string holder | int premium | byte frequency
+                                | int count of insured persons | string person...
+              create master:    string number | string beneficiary | string holder
+              move:             string master number | string single number
+              pay:              string number | int amount
+              vehicle claim:    string number | int expected damages
+              travel claim:     string number | int count of affected persons | string person...
+              charge premiums:  nothing
+              set policy:       byte vehicle uniqueness policy
+              set live clock:   byte 1 for on, 0 for off
+ time and strings are written as in CompanySnapshot, persons by their id and an empty string for none.
+
+ Persons are resolved by id inside the company, the Person objects passed in only carry the id.
+ Change the company only through this class, anything else is lost on replay.
+ */
+public final class EventSourcedCompany implements Closeable {
+    private static final String LOG_FILE = "commands.log";
+    private static final String SNAPSHOT_PREFIX = "company-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int BUFFER_SIZE = 1 << 10;
+    private static final byte SET_TIME = 0;
+    private static final byte INSURE_VEHICLE = 1;
+    private static final byte INSURE_PERSONS = 2;
+    private static final byte CREATE_MASTER = 3;
+    private static final byte MOVE = 4;
+    private static final byte PAY = 5;
+    private static final byte VEHICLE_CLAIM = 6;
+    private static final byte TRAVEL_CLAIM = 7;
+    private static final byte CHARGE_PREMIUMS = 8;
+    private static final byte SET_UNIQUENESS_POLICY = 9;
+    private static final byte SET_LIVE_CLOCK = 10;
+
+    private final Path directory;
+    private final int snapshotInterval;
+    private final CommandLog log;
+    private final InsuranceCompany company;
+    private ByteBuffer command;
+    private boolean broken;
+
+    private EventSourcedCompany(Path directory, int snapshotInterval, CommandLog log, InsuranceCompany company) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.log = log;
+        this.company = company;
+        this.command = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    // initialTime is only used when the directory holds no log yet
+    public static EventSourcedCompany open(Path directory, LocalDateTime initialTime, int snapshotInterval) {
+        if (directory == null) throw new IllegalArgumentException("Directory cannot be null");
+        if (initialTime == null) throw new IllegalArgumentException("Initial time cannot be null");
+        if (snapshotInterval <= 0) throw new IllegalArgumentException("Snapshot interval must be greater than zero");
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        CommandLog log = CommandLog.open(directory.resolve(LOG_FILE));
+        if (log.size() == 0) {
+            EventSourcedCompany created = new EventSourcedCompany(directory, snapshotInterval, log,
+                    new InsuranceCompany(initialTime));
+            created.setCurrentTime(initialTime);
+            return created;
+        }
+
+        try {
+            long snapshotCommands = newestSnapshot(directory, log.size());
+            InsuranceCompany restored = snapshotCommands < 0 ? null
+                    : CompanySnapshot.restore(snapshotPath(directory, snapshotCommands));
+            restored = replay(directory.resolve(LOG_FILE), restored, Math.max(snapshotCommands, 0));
+            return new EventSourcedCompany(directory, snapshotInterval, log, restored);
+        } catch (RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    // rebuilds a company from a command log alone, e.g. a copy of the production log
+    public static InsuranceCompany replay(Path commandLog) {
+        if (commandLog == null) throw new IllegalArgumentException("Command log cannot be null");
+        return replay(commandLog, null, 0);
+    }
+
+    public InsuranceCompany getCompany() {
+        return company;
+    }
+
+    public synchronized long getCommandCount() {
+        return log.size();
+    }
+
+    public synchronized void setCurrentTime(LocalDateTime currentTime) {
+        if (currentTime == null) throw new IllegalArgumentException("Current time cannot be null");
+
+        begin(SET_TIME);
+        putTime(currentTime);
+        execute();
+    }
+
+    public synchronized void setVehicleUniquenessPolicy(VehicleUniquenessPolicy vehicleUniquenessPolicy) {
+        if (vehicleUniquenessPolicy == null) throw new IllegalArgumentException("Vehicle uniqueness policy cannot be null");
+
+        begin(SET_UNIQUENESS_POLICY);
+        ensure(1);
+        command.put((byte) vehicleUniquenessPolicy.ordinal());
+        execute();
+    }
+
+    public synchronized void setLiveClock(boolean liveClock) {
+        begin(SET_LIVE_CLOCK);
+        ensure(1);
+        command.put((byte) (liveClock ? 1 : 0));
+        execute();
+    }
+
+    public synchronized SingleVehicleContract insureVehicle(String contractNumber, Person beneficiary,
+                                                            Person policyHolder, int proposedPremium,
+                                                            PremiumPaymentFrequency proposedPaymentFrequency,
+                                                            Vehicle vehicleToInsure) {
+        if (vehicleToInsure == null) throw new IllegalArgumentException("Vehicle to insure cannot be null");
+        if (proposedPaymentFrequency == null) throw new IllegalArgumentException("Payment frequency cannot be null");
+
+        begin(INSURE_VEHICLE);
+        putString(contractNumber);
+        putPerson(beneficiary);
+        putPerson(policyHolder);
+        ensure(5);
+        command.putInt(proposedPremium);
+        command.put((byte) proposedPaymentFrequency.ordinal());
+        putString(vehicleToInsure.getLicensePlate());
+        ensure(4);
+        command.putInt(vehicleToInsure.getOriginalValue());
+        return (SingleVehicleContract) execute();
+    }
+
+    public synchronized TravelContract insurePersons(String contractNumber, Person policyHolder, int proposedPremium,
+                                                     PremiumPaymentFrequency proposedPaymentFrequency,
+                                                     Set<Person> personsToInsure) {
+        if (personsToInsure == null || personsToInsure.isEmpty()) {
+            throw new IllegalArgumentException("Persons to insure cannot be null or empty");
+        }
+        if (proposedPaymentFrequency == null) throw new IllegalArgumentException("Payment frequency cannot be null");
+
+        begin(INSURE_PERSONS);
+        putString(contractNumber);
+        putPerson(policyHolder);
+        ensure(5);
+        command.putInt(proposedPremium);
+        command.put((byte) proposedPaymentFrequency.ordinal());
+        putPersons(personsToInsure);
+        return (TravelContract) execute();
+    }
+
+    public synchronized MasterVehicleContract createMasterVehicleContract(String contractNumber, Person beneficiary,
+                                                                          Person policyHolder) {
+        begin(CREATE_MASTER);
+        putString(contractNumber);
+        putPerson(beneficiary);
+        putPerson(policyHolder);
+        return (MasterVehicleContract) execute();
+    }
+
+    public synchronized void moveSingleVehicleContractToMasterVehicleContract(String masterContractNumber,
+                                                                              String singleContractNumber) {
+        begin(MOVE);
+        putString(masterContractNumber);
+        putString(singleContractNumber);
+        execute();
+    }
+
+    public synchronized void pay(String contractNumber, int amount) {
+        begin(PAY);
+        putString(contractNumber);
+        ensure(4);
+        command.putInt(amount);
+        execute();
+    }
+
+    public synchronized void processClaim(String singleContractNumber, int expectedDamages) {
+        begin(VEHICLE_CLAIM);
+        putString(singleContractNumber);
+        ensure(4);
+        command.putInt(expectedDamages);
+        execute();
+    }
+
+    public synchronized void processClaim(String travelContractNumber, Set<Person> affectedPersons) {
+        if (affectedPersons == null || affectedPersons.isEmpty()) {
+            throw new IllegalArgumentException("Affected persons cannot be null or empty");
+        }
+
+        begin(TRAVEL_CLAIM);
+        putString(travelContractNumber);
+        putPersons(affectedPersons);
+        execute();
+    }
+
+    public synchronized void chargePremiumsOnContracts() {
+        begin(CHARGE_PREMIUMS);
+        execute();
+    }
+
+    // takes a snapshot now instead of waiting for the interval, replay then starts here
+    public synchronized void snapshot() {
+        ensureIntact();
+        log.sync();
+        long commands = log.size();
+        Path target = snapshotPath(directory, commands);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CompanySnapshot.write(company, temporary);
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (Path older : snapshotPaths(directory)) {
+                if (snapshotCommands(older) < commands) Files.delete(older);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        log.close();
+    }
+
+    /*
+    @ help methods
+     */
+    private void ensureIntact() {
+        if (broken) {
+            throw new IllegalStateException("Company no longer matches its command log, reopen it");
+        }
+    }
+
+    private void begin(byte type) {
+        ensureIntact();
+        command.clear();
+        command.put(type);
+    }
+
+    private AbstractContract execute() {
+        ByteBuffer encoded = command.flip();
+        AbstractContract result = apply(company, encoded.duplicate());
+        try {
+            log.append(encoded);
+            if (log.size() % snapshotInterval == 0) snapshot();
+        } catch (RuntimeException e) {
+            broken = true;
+            throw e;
+        }
+        return result;
+    }
+
+    private void ensure(int bytes) {
+        if (command.remaining() >= bytes) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(command.capacity() * 2, command.position() + bytes));
+        command = grown.put(command.flip());
+    }
+
+    private void putTime(LocalDateTime time) {
+        ensure(12);
+        command.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        command.putInt(time.getNano());
+    }
+
+    private void putString(String value) {
+        if (value == null) throw new IllegalArgumentException("Contract number and license plate cannot be null");
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("Value is too long to log");
+        ensure(2 + bytes.length);
+        command.putShort((short) bytes.length);
+        command.put(bytes);
+    }
+
+    private void putPerson(Person person) {
+        putString(person == null ? "" : person.getId());
+    }
+
+    private void putPersons(Set<Person> persons) {
+        ensure(4);
+        command.putInt(persons.size());
+        for (Person person : persons) {
+            if (person == null) throw new IllegalArgumentException("Person cannot be null");
+            putPerson(person);
+        }
+    }
+
+    // the single place where commands change the company, both live and on replay
+    private static AbstractContract apply(InsuranceCompany company, ByteBuffer buffer) {
+        byte type = buffer.get();
+        if (type == SET_TIME) {
+            company.setCurrentTime(readTime(buffer));
+            return null;
+        }
+
+        return switch (type) {
+            case INSURE_VEHICLE -> company.insureVehicle(readString(buffer), readPerson(company, buffer),
+                    readPerson(company, buffer), buffer.getInt(), PremiumPaymentFrequency.values()[buffer.get()],
+                    new Vehicle(readString(buffer), buffer.getInt()));
+            case INSURE_PERSONS -> company.insurePersons(readString(buffer), readPerson(company, buffer),
+                    buffer.getInt(), PremiumPaymentFrequency.values()[buffer.get()], readPersons(company, buffer));
+            case CREATE_MASTER -> company.createMasterVehicleContract(readString(buffer), readPerson(company, buffer),
+                    readPerson(company, buffer));
+            case MOVE -> {
+                AbstractContract master = find(company, readString(buffer));
+                AbstractContract single = find(company, readString(buffer));
+                if (!(master instanceof MasterVehicleContract) || !(single instanceof SingleVehicleContract)) {
+                    throw new IllegalArgumentException("Contracts are not a master and a single vehicle contract");
+                }
+                company.moveSingleVehicleContractToMasterVehicleContract((MasterVehicleContract) master,
+                        (SingleVehicleContract) single);
+                yield null;
+            }
+            case PAY -> {
+                find(company, readString(buffer)).pay(buffer.getInt());
+                yield null;
+            }
+            case VEHICLE_CLAIM -> {
+                if (!(find(company, readString(buffer)) instanceof SingleVehicleContract single)) {
+                    throw new IllegalArgumentException("Contract is not a single vehicle contract");
+                }
+                company.processClaim(single, buffer.getInt());
+                yield null;
+            }
+            case TRAVEL_CLAIM -> {
+                if (!(find(company, readString(buffer)) instanceof TravelContract travel)) {
+                    throw new IllegalArgumentException("Contract is not a travel contract");
+                }
+                company.processClaim(travel, readPersons(company, buffer));
+                yield null;
+            }
+            case CHARGE_PREMIUMS -> {
+                company.chargePremiumsOnContracts();
+                yield null;
+            }
+            case SET_UNIQUENESS_POLICY -> {
+                company.setVehicleUniquenessPolicy(VehicleUniquenessPolicy.values()[buffer.get()]);
+                yield null;
+            }
+            case SET_LIVE_CLOCK -> {
+                company.setLiveClock(buffer.get() == 1);
+                yield null;
+            }
+            default -> throw new IllegalArgumentException("Unknown command type " + type);
+        };
+    }
+
+    // a log without a snapshot starts with the time the company was created at
+    private static InsuranceCompany replay(Path commandLog, InsuranceCompany company, long first) {
+        InsuranceCompany[] replayed = {company};
+        CommandLog.read(commandLog, first, buffer -> {
+            if (replayed[0] == null) {
+                if (buffer.get(buffer.position()) != SET_TIME) {
+                    throw new IllegalArgumentException("Command log does not start with the time");
+                }
+                replayed[0] = new InsuranceCompany(readTime(buffer.position(buffer.position() + 1)));
+            } else {
+                apply(replayed[0], buffer);
+            }
+        });
+        if (replayed[0] == null) throw new IllegalArgumentException("Command log is empty");
+        return replayed[0];
+    }
+
+    private static AbstractContract find(InsuranceCompany company, String contractNumber) {
+        AbstractContract contract = company.findContract(contractNumber);
+        if (contract == null) throw new IllegalArgumentException("Contract with this number does not exist");
+        return contract;
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Person readPerson(InsuranceCompany company, ByteBuffer buffer) {
+        String id = readString(buffer);
+        if (id.isEmpty()) return null;
+
+        // a new person is registered by the command itself, so a failed command leaves the registry alone
+        Person person = company.getPersons().find(id);
+        return person != null ? person : new Person(id);
+    }
+
+    private static Set<Person> readPersons(InsuranceCompany company, ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Set<Person> persons = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            persons.add(readPerson(company, buffer));
+        }
+        return persons;
+    }
+
+    // number of commands behind the newest snapshot the log still covers, -1 without one
+    private static long newestSnapshot(Path directory, long logCommands) {
+        long newest = -1;
+        for (Path snapshot : snapshotPaths(directory)) {
+            long commands = snapshotCommands(snapshot);
+            if (commands <= logCommands) newest = Math.max(newest, commands);
+        }
+        return newest;
+    }
+
+    private static List<Path> snapshotPaths(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>();
+            files.filter(file -> snapshotCommands(file) >= 0).forEach(snapshots::add);
+            return snapshots;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long commands) {
+        return directory.resolve(SNAPSHOT_PREFIX + commands + SNAPSHOT_SUFFIX);
+    }
+
+    private static long snapshotCommands(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SNAPSHOT_PREFIX) || !name.endsWith(SNAPSHOT_SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
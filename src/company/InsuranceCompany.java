@@ -1,20 +1,45 @@
 package company;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 import contracts.*;
 import objects.Person;
+import objects.PersonRegistry;
 import payment.ContractPaymentData;
 import payment.PaymentHandler;
+import payment.PortfolioStore;
 import payment.PremiumPaymentFrequency;
 import objects.Vehicle;
 
 public class InsuranceCompany {
     private final Set<AbstractContract> contracts;
+    private final ContractRegistry registry;
+    private final DueDateIndex dueDateIndex;
+    private final ContractIndex contractIndex;
     private final PaymentHandler handler;
-    private LocalDateTime currentTime;
+    private final ContractLocks locks;
+    private final PersonRegistry persons;
+    private final List<AccrualListener> accrualListeners;
+    private final Set<SingleVehicleContract> flaggedVehicleContracts;
+    private VehicleUniquenessPolicy vehicleUniquenessPolicy;
+    private volatile PortfolioStore portfolioStore;
+    private volatile ChangeStream changeStream;
+    private volatile LocalDateTime currentTime;
+    private volatile boolean liveClock;
 
     public InsuranceCompany(LocalDateTime currentTime) {
         if (currentTime == null) {
@@ -22,8 +47,19 @@ public class InsuranceCompany {
         }
 
         this.currentTime = currentTime;
-        this.contracts = new LinkedHashSet<>();
+        this.locks = new ContractLocks();
+        this.registry = new ContractRegistry(locks);
+        this.dueDateIndex = new DueDateIndex();
+        this.contractIndex = new ContractIndex(registry);
+        this.registry.addListener(dueDateIndex);
+        this.registry.addListener(contractIndex);
+        this.contracts = registry;
         this.handler = new PaymentHandler(this);
+        this.persons = new PersonRegistry();
+        this.accrualListeners = new CopyOnWriteArrayList<>();
+        this.flaggedVehicleContracts = Collections.synchronizedSet(new LinkedHashSet<>());
+        this.vehicleUniquenessPolicy = VehicleUniquenessPolicy.ALLOW;
+        this.liveClock = false;
     }
 
     public LocalDateTime getCurrentTime() {
@@ -35,6 +71,74 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Current time cannot be null");
         }
         this.currentTime = currentTime;
+
+        if (liveClock) {
+            chargeDuePremiums();
+        }
+    }
+
+    public boolean isLiveClock() {
+        return liveClock;
+    }
+
+    public void setLiveClock(boolean liveClock) {
+        this.liveClock = liveClock;
+    }
+
+    public void addAccrualListener(AccrualListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        accrualListeners.add(listener);
+    }
+
+    public VehicleUniquenessPolicy getVehicleUniquenessPolicy() {
+        return vehicleUniquenessPolicy;
+    }
+
+    public void setVehicleUniquenessPolicy(VehicleUniquenessPolicy vehicleUniquenessPolicy) {
+        if (vehicleUniquenessPolicy == null) throw new IllegalArgumentException("Vehicle uniqueness policy cannot be null");
+        this.vehicleUniquenessPolicy = vehicleUniquenessPolicy;
+    }
+
+    public PortfolioStore getPortfolioStore() {
+        return portfolioStore;
+    }
+
+    // moves the payment data of every contract into the store, contracts created later are stored on creation.
+    // Each contract moves under its stripe, so payments, claims and moves wait for it; premium accrual takes
+    // no lock, so do not bill while the store is switched in
+    public void usePortfolioStore(PortfolioStore portfolioStore) {
+        if (portfolioStore == null) throw new IllegalArgumentException("Portfolio store cannot be null");
+
+        List<AbstractContract> existing;
+        synchronized (registry) {
+            if (this.portfolioStore != null) throw new IllegalStateException("Portfolio store is already in use");
+            this.portfolioStore = portfolioStore;
+            existing = registry.snapshot();
+        }
+
+        for (AbstractContract contract : existing) {
+            Lock lock = locks.lockFor(contract);
+            lock.lock();
+            try {
+                moveToStore(contract, portfolioStore);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public ChangeStream getChangeStream() {
+        return changeStream;
+    }
+
+    public synchronized ChangeStream enableChangeStream(int capacity) {
+        if (changeStream != null) throw new IllegalStateException("Change stream is already enabled");
+        changeStream = new ChangeStream(capacity);
+        return changeStream;
+    }
+
+    public Set<SingleVehicleContract> getFlaggedVehicleContracts() {
+        return flaggedVehicleContracts;
     }
 
     public Set<AbstractContract> getContracts() {
@@ -45,7 +149,78 @@ public class InsuranceCompany {
         return handler;
     }
 
+    public ContractLocks getLocks() {
+        return locks;
+    }
+
+    public PersonRegistry getPersons() {
+        return persons;
+    }
+
+    public Person findPersonById(String id) {
+        return persons.find(id);
+    }
+
+    public AbstractContract findByNumber(String contractNumber) {
+        return registry.findByNumber(contractNumber);
+    }
+
+    // like findByNumber, but also reaches children moved into a master contract; null when nothing matches
+    public AbstractContract findContract(String contractNumber) {
+        AbstractContract contract = registry.findByNumber(contractNumber);
+        if (contract != null || contractNumber == null) return contract;
+        return contractIndex.findChild(contractNumber);
+    }
+
+    public Set<AbstractContract> findByPolicyHolder(Person policyHolder) {
+        return contractIndex.findByPolicyHolder(policyHolder);
+    }
+
+    public Set<AbstractVehicleContract> findByBeneficiary(Person beneficiary) {
+        return contractIndex.findByBeneficiary(beneficiary);
+    }
+
+    public Set<SingleVehicleContract> findByLicensePlate(String licensePlate) {
+        return contractIndex.findByLicensePlate(licensePlate);
+    }
+
+    public Set<TravelContract> findByInsuredPerson(Person person) {
+        return contractIndex.findByInsuredPerson(person);
+    }
+
+    // called by a contract that has just been deactivated
+    public void contractDeactivated(AbstractContract contract) {
+        if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+        if (contract.getInsurer() != this) throw new InvalidContractException("Contract does not belong to this insurer");
+        if (contract.isActive()) throw new IllegalStateException("Contract is still active");
+        publishChange(ChangeType.CONTRACT_DEACTIVATED, contract, null, 0);
+
+        if (contract instanceof SingleVehicleContract child) {
+            MasterVehicleContract master = contractIndex.findMaster(child);
+            if (master != null) master.childDeactivated();
+        }
+    }
+
+    // called by the handler once a payment is applied and recorded
+    public void paymentApplied(AbstractContract contract, LocalDateTime paymentTime, int amount) {
+        if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+        if (contract.getInsurer() != this) throw new InvalidContractException("Contract does not belong to this insurer");
+        if (amount <= 0) throw new IllegalArgumentException("Payment amount must be positive");
+        publishChange(ChangeType.PAYMENT_APPLIED, contract, null, paymentTime, amount);
+    }
+
+    public void beneficiaryChanged(AbstractVehicleContract contract, Person previousBeneficiary) {
+        if (contract == null) throw new IllegalArgumentException("Contract cannot be null");
+        synchronized (registry) {
+            contractIndex.beneficiaryChanged(contract, previousBeneficiary);
+        }
+    }
+
     public static boolean contractAlreadyExists(Set<AbstractContract> contracts, String contractNumber) {
+        if (contracts instanceof ContractRegistry registry) {
+            return registry.containsNumber(contractNumber);
+        }
+
         for (AbstractContract contract : contracts) {
             if (contract.getContractNumber().equals(contractNumber)) {
                 return true;
@@ -82,20 +257,29 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Total premium value must be at least 2% of the vehicle's original value");
         }
 
-        ContractPaymentData newContractPaymentData = new ContractPaymentData(
-                proposedPremium, proposedPaymentFrequency, currentTime, 0
-        );
+        if (vehicleUniquenessPolicy == VehicleUniquenessPolicy.REJECT
+                && hasActiveVehicle(vehicleToInsure.getLicensePlate())) {
+            throw new IllegalArgumentException("Vehicle with this license plate is already insured");
+        }
 
+        ContractPaymentData newContractPaymentData = createPaymentData(proposedPremium, proposedPaymentFrequency);
 
-        SingleVehicleContract newContract = new SingleVehicleContract(
-                contractNumber, this, beneficiary, policyHolder,
-                newContractPaymentData, vehicleToInsure.getOriginalValue() / 2, vehicleToInsure
-        );
+        List<Person> added = new ArrayList<>(2);
+        try {
+            SingleVehicleContract newContract = new SingleVehicleContract(
+                    contractNumber, this, canonical(beneficiary, added), canonical(policyHolder, added),
+                    newContractPaymentData, vehicleToInsure.getOriginalValue() / 2, vehicleToInsure
+            );
 
-        chargePremiumOnContract(newContract);
-        contracts.add(newContract);
-        policyHolder.addContract(newContract);
-        return newContract;
+            long charged = accruePremiums(newContract, new BillingSummary(), false);
+            if (!register(newContract, true, charged)) {
+                throw new IllegalArgumentException("Contract with this number already exists");
+            }
+            return newContract;
+        } catch (RuntimeException e) {
+            forget(added);
+            throw e;
+        }
     }
 
     public TravelContract insurePersons(String contractNumber, Person policyHolder, int proposedPremium,
@@ -122,19 +306,63 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Total premium value must be at least 5 times the number of persons to insure");
         }
 
-        ContractPaymentData newContractPaymentData = new ContractPaymentData(
-                proposedPremium, proposedPaymentFrequency, currentTime, 0
-        );
+        ContractPaymentData newContractPaymentData = createPaymentData(proposedPremium, proposedPaymentFrequency);
 
-        TravelContract newContract = new TravelContract(
-                contractNumber, this, policyHolder,
-                newContractPaymentData, 10 * personsToInsure.size(), personsToInsure
-        );
+        List<Person> added = new ArrayList<>();
+        try {
+            TravelContract newContract = new TravelContract(
+                    contractNumber, this, canonical(policyHolder, added),
+                    newContractPaymentData, 10 * personsToInsure.size(), canonical(personsToInsure, added)
+            );
 
-        chargePremiumOnContract(newContract);
-        contracts.add(newContract);
-        policyHolder.addContract(newContract);
-        return newContract;
+            long charged = accruePremiums(newContract, new BillingSummary(), false);
+            if (!register(newContract, true, charged)) {
+                throw new IllegalArgumentException("Contract with this number already exists");
+            }
+            return newContract;
+        } catch (RuntimeException e) {
+            forget(added);
+            throw e;
+        }
+    }
+
+    public OnboardingResult insureAll(Stream<ContractProposal> proposals) {
+        if (proposals == null) throw new IllegalArgumentException("Proposals cannot be null");
+
+        long start = System.nanoTime();
+        List<ContractProposal> batch = proposals.toList();
+        registry.ensureCapacity(registry.size() + batch.size());
+
+        List<AbstractContract> created = new ArrayList<>(batch.size());
+        Map<Integer, String> rejected = new LinkedHashMap<>();
+        BillingSummary summary = new BillingSummary();
+        for (int position = 0; position < batch.size(); position++) {
+            ContractProposal proposal = batch.get(position);
+            if (proposal == null) {
+                rejected.put(position, "Proposal cannot be null");
+                continue;
+            }
+
+            String reason = proposalRejectionReason(proposal);
+            if (reason != null) {
+                rejected.put(position, reason);
+                continue;
+            }
+
+            List<Person> added = new ArrayList<>();
+            try {
+                AbstractContract newContract = createProposedContract(proposal, added);
+                long charged = accruePremiums(newContract, summary, false);
+                if (!register(newContract, true, charged)) {
+                    throw new IllegalArgumentException("Contract with this number already exists");
+                }
+                created.add(newContract);
+            } catch (IllegalArgumentException e) {
+                forget(added);
+                rejected.put(position, e.getMessage());
+            }
+        }
+        return new OnboardingResult(created, rejected, batch.size(), System.nanoTime() - start);
     }
 
     public MasterVehicleContract createMasterVehicleContract(String contractNumber, Person beneficiary,
@@ -143,12 +371,20 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Contract with this number already exists");
         }
 
-        MasterVehicleContract newContract = new MasterVehicleContract(
-                contractNumber, this, beneficiary, policyHolder
-        );
+        List<Person> added = new ArrayList<>(2);
+        MasterVehicleContract newContract;
+        try {
+            newContract = new MasterVehicleContract(
+                    contractNumber, this, canonical(beneficiary, added), canonical(policyHolder, added)
+            );
 
-        contracts.add(newContract);
-        policyHolder.addContract(newContract);
+            if (!register(newContract, false, 0)) {
+                throw new IllegalArgumentException("Contract with this number already exists");
+            }
+        } catch (RuntimeException e) {
+            forget(added);
+            throw e;
+        }
         return newContract;
     }
 
@@ -158,6 +394,17 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Master vehicle contract and single vehicle contract cannot be null");
         }
 
+        Lock lock = locks.lockFor(masterVehicleContract);
+        lock.lock();
+        try {
+            transferToMasterVehicleContract(masterVehicleContract, singleVehicleContract);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transferToMasterVehicleContract(MasterVehicleContract masterVehicleContract,
+                                                 SingleVehicleContract singleVehicleContract) {
         if (!masterVehicleContract.isActive() || !singleVehicleContract.isActive()) {
             throw new InvalidContractException("One of the contracts is not active");
         }
@@ -179,14 +426,38 @@ public class InsuranceCompany {
             throw new InvalidContractException("One of the contracts does not belong to this insurer");
         }
 
-        contracts.remove(singleVehicleContract);
-        Person policyHolder = singleVehicleContract.getPolicyHolder();
-        policyHolder.getContracts().remove(singleVehicleContract);
-        masterVehicleContract.getChildContracts().add(singleVehicleContract);
+        synchronized (registry) {
+            contractIndex.childAttached(masterVehicleContract, singleVehicleContract);
+            contracts.remove(singleVehicleContract);
+            masterVehicleContract.attachChildContract(singleVehicleContract);
+            contractIndex.index(singleVehicleContract);
+            dueDateIndex.schedule(masterVehicleContract);
+        }
+        singleVehicleContract.getPolicyHolder().getContracts().remove(singleVehicleContract);
+        publishChange(ChangeType.CONTRACT_MOVED, singleVehicleContract, masterVehicleContract, 0);
+    }
+
+    public Map<String, List<SingleVehicleContract>> auditDuplicateVehicles() {
+        Map<String, List<SingleVehicleContract>> contractsByPlate = new HashMap<>();
+        for (AbstractContract contract : registry.snapshot()) {
+            if (contract instanceof SingleVehicleContract single) {
+                addActiveVehicle(contractsByPlate, single);
+            } else if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : childrenOf(master)) {
+                    addActiveVehicle(contractsByPlate, child);
+                }
+            }
+        }
+
+        Map<String, List<SingleVehicleContract>> duplicates = new LinkedHashMap<>();
+        for (Map.Entry<String, List<SingleVehicleContract>> entry : contractsByPlate.entrySet()) {
+            if (entry.getValue().size() > 1) duplicates.put(entry.getKey(), entry.getValue());
+        }
+        return duplicates;
     }
 
     public void chargePremiumsOnContracts() {
-        for (AbstractContract contract : contracts) {
+        for (AbstractContract contract : registry.snapshot()) {
             if (contract.isActive()) {
                 contract.updateBalance();
             }
@@ -194,17 +465,44 @@ public class InsuranceCompany {
     }
 
     public void chargePremiumOnContract(MasterVehicleContract contract) {
-        for (SingleVehicleContract childContract : contract.getChildContracts()) {
+        for (SingleVehicleContract childContract : childrenOf(contract)) {
             chargePremiumOnContract(childContract);
         }
     }
 
     public void chargePremiumOnContract(AbstractContract contract) {
-        ContractPaymentData paymentData = contract.getContractPaymentData();
-        while (paymentData.getNextPaymentTime().isBefore(currentTime) || paymentData.getNextPaymentTime().isEqual(currentTime)) {
-            paymentData.setOutstandingBalance(paymentData.getOutstandingBalance() + paymentData.getPremium());
-            paymentData.updateNextPaymentTime();
+        accruePremiums(contract, new BillingSummary(), true);
+    }
+
+    public BillingSummary chargePremiumsOnContracts(ForkJoinPool pool) {
+        if (pool == null) throw new IllegalArgumentException("Pool cannot be null");
+
+        List<AbstractContract> billable = collectBillableContracts();
+        return pool.invoke(new BillingTask(this, billable, 0, billable.size()));
+    }
+
+    public BillingSummary chargeDuePremiums() {
+        BillingSummary summary = new BillingSummary();
+
+        List<AbstractContract> due;
+        synchronized (registry) {
+            due = dueDateIndex.pollDue(currentTime);
         }
+
+        for (AbstractContract contract : due) {
+            // inactive contracts leave the index here
+            if (!contract.isActive()) continue;
+
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract childContract : childrenOf(master)) {
+                    accruePremiums(childContract, summary, true);
+                }
+            } else {
+                accruePremiums(contract, summary, true);
+            }
+            reschedule(contract);
+        }
+        return summary;
     }
 
     public void processClaim(TravelContract travelContract, Set<Person> affectedPersons) {
@@ -220,16 +518,23 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Some persons are not insured under this contract");
         }
 
-        if (!travelContract.isActive()) {
-            throw new InvalidContractException("Travel contract is not active");
-        }
+        Lock lock = locks.lockFor(travelContract);
+        lock.lock();
+        try {
+            if (!travelContract.isActive()) {
+                throw new InvalidContractException("Travel contract is not active");
+            }
 
-        int totalClaimAmount = travelContract.getCoverageAmount() / affectedPersons.size();
-        for (Person person : affectedPersons) {
-            person.payout(totalClaimAmount);
-        }
+            int totalClaimAmount = travelContract.getCoverageAmount() / affectedPersons.size();
+            for (Person person : affectedPersons) {
+                person.payout(totalClaimAmount);
+            }
+            publishChange(ChangeType.CLAIM_PAID, travelContract, null, (long) totalClaimAmount * affectedPersons.size());
 
-        travelContract.setInactive();
+            travelContract.setInactive();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void processClaim(SingleVehicleContract singleVehicleContract, int expectedDamages) {
@@ -241,20 +546,320 @@ public class InsuranceCompany {
             throw new IllegalArgumentException("Expected damages must be greater than zero");
         }
 
-        if (!singleVehicleContract.isActive()) {
-            throw new InvalidContractException("Single vehicle contract is not active");
+        Lock lock = locks.lockFor(singleVehicleContract);
+        lock.lock();
+        try {
+            if (!singleVehicleContract.isActive()) {
+                throw new InvalidContractException("Single vehicle contract is not active");
+            }
+
+            int payoutAmount = singleVehicleContract.getCoverageAmount();
+            Person payoutTarget = singleVehicleContract.getBeneficiary();
+
+            if (payoutTarget == null) {
+                payoutTarget = singleVehicleContract.getPolicyHolder();
+            }
+            payoutTarget.payout(payoutAmount);
+            publishChange(ChangeType.CLAIM_PAID, singleVehicleContract, null, payoutAmount);
+
+            if (expectedDamages >= (int) (0.7 * singleVehicleContract.getInsuredVehicle().getOriginalValue())) {
+                singleVehicleContract.setInactive();
+            }
+        } finally {
+            lock.unlock();
         }
+    }
 
-        int payoutAmount = singleVehicleContract.getCoverageAmount();
-        Person payoutTarget = singleVehicleContract.getBeneficiary();
+    /*
+    @ help methods
+     */
+    List<AbstractContract> snapshotContracts() {
+        return registry.snapshot();
+    }
 
-        if (payoutTarget == null) {
-            payoutTarget = singleVehicleContract.getPolicyHolder();
+    // bulk load for CompanySnapshot into a company that is not shared yet, so there is no store, stream or
+    // other thread to account for. The contracts were validated when they were first insured
+    void restoreContracts(List<AbstractContract> restored) {
+        registry.ensureCapacity(registry.size() + restored.size());
+        if (!registry.addAllUnshared(restored)) {
+            throw new IllegalArgumentException("Contract with this number already exists");
         }
-        payoutTarget.payout(payoutAmount);
 
-        if (expectedDamages >= (int) (0.7 * singleVehicleContract.getInsuredVehicle().getOriginalValue())) {
-            singleVehicleContract.setInactive();
+        for (AbstractContract contract : restored) {
+            contract.getPolicyHolder().addContract(contract);
+            registerPersons(contract);
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : master.getChildContracts()) {
+                    registerPersons(child);
+                }
+            }
+        }
+    }
+
+    // false when another contract took the number since it was checked. With checkVehicle the plate is checked
+    // against the uniqueness policy under the same registry monitor that adds the contract, so two contracts
+    // for one plate cannot both pass it. The creation and the first charge are published under the stripe,
+    // before any payment on the contract can be
+    private boolean register(AbstractContract newContract, boolean checkVehicle, long charged) {
+        Person policyHolder = newContract.getPolicyHolder();
+        VehicleUniquenessPolicy policy = vehicleUniquenessPolicy;
+        Lock lock = locks.lockFor(policyHolder);
+        lock.lock();
+        try {
+            boolean alreadyInsured;
+            synchronized (registry) {
+                alreadyInsured = checkVehicle && policy != VehicleUniquenessPolicy.ALLOW
+                        && newContract instanceof SingleVehicleContract single
+                        && contractIndex.hasActiveVehicle(single.getInsuredVehicle().getLicensePlate());
+                if (alreadyInsured && policy == VehicleUniquenessPolicy.REJECT) {
+                    throw new IllegalArgumentException("Vehicle with this license plate is already insured");
+                }
+                if (!contracts.add(newContract)) return false;
+            }
+            if (alreadyInsured) flaggedVehicleContracts.add((SingleVehicleContract) newContract);
+            policyHolder.addContract(newContract);
+            // registered after usePortfolioStore took its snapshot, so it is not moved there
+            PortfolioStore store = portfolioStore;
+            if (store != null) moveToStore(newContract, store);
+
+            publishChange(ChangeType.CONTRACT_CREATED, newContract, null, newContract.getCoverageAmount());
+            if (charged > 0) publishChange(ChangeType.PREMIUM_ACCRUED, newContract, null, charged);
+        } finally {
+            lock.unlock();
+        }
+        registerPersons(newContract);
+        return true;
+    }
+
+    private void publishChange(ChangeType type, AbstractContract contract, AbstractContract related, long amount) {
+        publishChange(type, contract, related, currentTime, amount);
+    }
+
+    private void publishChange(ChangeType type, AbstractContract contract, AbstractContract related,
+                               LocalDateTime time, long amount) {
+        ChangeStream stream = changeStream;
+        if (stream == null) return;
+        stream.publish(type, contract.getContractNumber(), related == null ? null : related.getContractNumber(),
+                time, amount);
+    }
+
+    // the contract's stripe guards a master's children, which the index reads; a contract that left the
+    // registry meanwhile is not put back
+    private void reschedule(AbstractContract contract) {
+        Lock lock = locks.lockFor(contract);
+        lock.lock();
+        try {
+            synchronized (registry) {
+                if (contracts.contains(contract)) dueDateIndex.schedule(contract);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasActiveVehicle(String licensePlate) {
+        synchronized (registry) {
+            return contractIndex.hasActiveVehicle(licensePlate);
+        }
+    }
+
+    // the registry's instance for the person's ID, contracts are built on it so they share contracts and payouts.
+    // A person registered here for the first time goes to added, so a failed insure call can forget it again
+    private Person canonical(Person person, List<Person> added) {
+        if (person == null) return null;
+
+        Person existing = persons.find(person.getId());
+        if (existing != null) return existing;
+
+        Person canonicalPerson = persons.intern(person);
+        if (canonicalPerson == person) added.add(person);
+        return canonicalPerson;
+    }
+
+    private Set<Person> canonical(Set<Person> personsToInsure, List<Person> added) {
+        Set<Person> canonicalPersons = new LinkedHashSet<>();
+        boolean changed = false;
+        for (Person person : personsToInsure) {
+            Person canonicalPerson = canonical(person, added);
+            changed |= canonicalPerson != person;
+            canonicalPersons.add(canonicalPerson);
+        }
+        return changed ? canonicalPersons : personsToInsure;
+    }
+
+    // a contract built on the person meanwhile interns the same instance again in registerPersons
+    private void forget(List<Person> added) {
+        for (Person person : added) {
+            if (person.getContracts().isEmpty()) persons.remove(person);
+        }
+    }
+
+    private void registerPersons(AbstractContract contract) {
+        persons.intern(contract.getPolicyHolder());
+        if (contract instanceof AbstractVehicleContract vehicleContract && vehicleContract.getBeneficiary() != null) {
+            persons.intern(vehicleContract.getBeneficiary());
+        }
+        if (contract instanceof TravelContract travel) {
+            for (Person person : travel.getInsuredPersons()) {
+                persons.intern(person);
+            }
+        }
+    }
+
+    // same checks and messages as insureVehicle and insurePersons, without throwing
+    private String proposalRejectionReason(ContractProposal proposal) {
+        if (proposal.getPolicyHolder() == null) return "Policy holder cannot be null";
+        if (!proposal.isTravel() && proposal.getVehicleToInsure() == null) return "Vehicle to insure cannot be null";
+        if (proposal.isTravel() && (proposal.getPersonsToInsure() == null || proposal.getPersonsToInsure().isEmpty())) {
+            return "Persons to insure cannot be null or empty";
+        }
+
+        PremiumPaymentFrequency frequency = proposal.getProposedPaymentFrequency();
+        if (frequency == null) return "Payment frequency cannot be null";
+        if (proposal.getProposedPremium() <= 0) return "Proposed premium must be greater than zero";
+        if (registry.containsNumber(proposal.getContractNumber())) return "Contract with this number already exists";
+
+        int totalPremiumValue = proposal.getProposedPremium() * (12 / frequency.getValueInMonths());
+        if (proposal.isTravel()) {
+            if (totalPremiumValue < 5 * proposal.getPersonsToInsure().size()) {
+                return "Total premium value must be at least 5 times the number of persons to insure";
+            }
+            return null;
+        }
+
+        Vehicle vehicle = proposal.getVehicleToInsure();
+        if (totalPremiumValue < (int) (vehicle.getOriginalValue() * 0.02)) {
+            return "Total premium value must be at least 2% of the vehicle's original value";
+        }
+        if (vehicleUniquenessPolicy == VehicleUniquenessPolicy.REJECT
+                && hasActiveVehicle(vehicle.getLicensePlate())) {
+            return "Vehicle with this license plate is already insured";
+        }
+        return null;
+    }
+
+    private AbstractContract createProposedContract(ContractProposal proposal, List<Person> added) {
+        ContractPaymentData paymentData = createPaymentData(proposal.getProposedPremium(),
+                proposal.getProposedPaymentFrequency());
+
+        if (proposal.isTravel()) {
+            return new TravelContract(proposal.getContractNumber(), this, canonical(proposal.getPolicyHolder(), added),
+                    paymentData, 10 * proposal.getPersonsToInsure().size(),
+                    canonical(proposal.getPersonsToInsure(), added));
+        }
+        Vehicle vehicle = proposal.getVehicleToInsure();
+        return new SingleVehicleContract(proposal.getContractNumber(), this,
+                canonical(proposal.getBeneficiary(), added), canonical(proposal.getPolicyHolder(), added), paymentData,
+                vehicle.getOriginalValue() / 2, vehicle);
+    }
+
+    private ContractPaymentData createPaymentData(int premium, PremiumPaymentFrequency frequency) {
+        ContractPaymentData paymentData = new ContractPaymentData(premium, frequency, currentTime, 0);
+        PortfolioStore store = portfolioStore;
+        if (store != null) paymentData.moveTo(store);
+        return paymentData;
+    }
+
+    private static void moveToStore(AbstractContract contract, PortfolioStore store) {
+        if (contract instanceof MasterVehicleContract master) {
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                moveToStore(child.getContractPaymentData(), store);
+            }
+        } else {
+            moveToStore(contract.getContractPaymentData(), store);
+        }
+    }
+
+    private static void moveToStore(ContractPaymentData paymentData, PortfolioStore store) {
+        if (paymentData != null && !paymentData.isStored()) paymentData.moveTo(store);
+    }
+
+    private static void addActiveVehicle(Map<String, List<SingleVehicleContract>> contractsByPlate,
+                                         SingleVehicleContract contract) {
+        if (!contract.isActive()) return;
+        contractsByPlate.computeIfAbsent(contract.getInsuredVehicle().getLicensePlate(), plate -> new ArrayList<>())
+                .add(contract);
+    }
+
+    // copy taken under the master's stripe, which guards its child set against moves
+    private List<SingleVehicleContract> childrenOf(MasterVehicleContract master) {
+        Lock lock = locks.lockFor(master);
+        lock.lock();
+        try {
+            return new ArrayList<>(master.getChildContracts());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // same contracts the serial run charges, each payment data once even if it is reachable twice
+    private List<AbstractContract> collectBillableContracts() {
+        Set<ContractPaymentData> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<AbstractContract> billable = new ArrayList<>();
+
+        for (AbstractContract contract : registry.snapshot()) {
+            if (!contract.isActive()) continue;
+
+            if (contract instanceof MasterVehicleContract master) {
+                for (SingleVehicleContract child : childrenOf(master)) {
+                    if (seen.add(child.getContractPaymentData())) billable.add(child);
+                }
+            } else if (contract.getContractPaymentData() != null && seen.add(contract.getContractPaymentData())) {
+                billable.add(contract);
+            }
+        }
+        return billable;
+    }
+
+    // lock free, see ContractPaymentData.accrue; returns the amount charged. The first charge of a new
+    // contract is published by register
+    private long accruePremiums(AbstractContract contract, BillingSummary summary, boolean publish) {
+        ContractPaymentData paymentData = contract.getContractPaymentData();
+        long periods = paymentData.accrue(currentTime);
+        if (periods == 0) return 0;
+
+        long charged = periods * paymentData.getPremium();
+        summary.add(periods, charged);
+        if (publish) publishChange(ChangeType.PREMIUM_ACCRUED, contract, null, charged);
+        for (AccrualListener listener : accrualListeners) {
+            listener.premiumAccrued(contract, periods, charged);
+        }
+        return charged;
+    }
+
+    // never serialized, the fields are transient only to keep the task warning free
+    private static final class BillingTask extends RecursiveTask<BillingSummary> {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 1024;
+
+        private final transient InsuranceCompany insurer;
+        private final transient List<AbstractContract> billable;
+        private final int from;
+        private final int to;
+
+        BillingTask(InsuranceCompany insurer, List<AbstractContract> billable, int from, int to) {
+            this.insurer = insurer;
+            this.billable = billable;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BillingSummary compute() {
+            if (to - from <= THRESHOLD) {
+                BillingSummary summary = new BillingSummary();
+                for (int i = from; i < to; i++) {
+                    insurer.accruePremiums(billable.get(i), summary, true);
+                }
+                return summary;
+            }
+
+            int middle = (from + to) >>> 1;
+            BillingTask left = new BillingTask(insurer, billable, from, middle);
+            left.fork();
+            BillingSummary summary = new BillingTask(insurer, billable, middle, to).compute();
+            summary.merge(left.join());
+            return summary;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package company;
+
+import java.util.List;
+import java.util.Map;
+
+import contracts.AbstractContract;
+
+public class OnboardingResult {
+    private final List<AbstractContract> created;
+    private final Map<Integer, String> rejected;
+    private final int proposalCount;
+    private final long elapsedNanos;
+
+    OnboardingResult(List<AbstractContract> created, Map<Integer, String> rejected, int proposalCount,
+                     long elapsedNanos) {
+        this.created = created;
+        this.rejected = rejected;
+        this.proposalCount = proposalCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<AbstractContract> getCreated() {
+        return created;
+    }
+
+    // keyed by the position of the proposal in the stream, the same proposal may be submitted twice
+    public Map<Integer, String> getRejected() {
+        return rejected;
+    }
+
+    public int getProposalCount() {
+        return proposalCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getProposalsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getProposalCount() * 1e9 / elapsedNanos;
+    }
+}
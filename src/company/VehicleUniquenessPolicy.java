@@ -0,0 +1,5 @@
+package company;
+
+public enum VehicleUniquenessPolicy {
+    ALLOW, FLAG, REJECT
+}
@@ -5,15 +5,27 @@ import objects.Person;
 import payment.PaymentHandler;
 import payment.ContractPaymentData;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 public abstract class AbstractContract {
+    private static final VarHandle IS_ACTIVE;
+
+    static {
+        try {
+            IS_ACTIVE = MethodHandles.lookup().findVarHandle(AbstractContract.class, "isActive", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String contractNumber;
     protected final InsuranceCompany  insurer;
     protected final Person policyHolder;
     protected final ContractPaymentData contractPaymentData;
     protected int coverageAmount;
-    protected boolean isActive;
+    protected volatile boolean isActive;
 
     public AbstractContract(String contractNumber, InsuranceCompany insurer,
                             Person policyHolder, ContractPaymentData contractPaymentData,
@@ -65,7 +77,12 @@ public abstract class AbstractContract {
     }
 
     public void setInactive() {
-        this.isActive = false;
+        if (deactivate()) insurer.contractDeactivated(this);
+    }
+
+    // true only for the one caller that moved the contract from active to inactive
+    protected final boolean deactivate() {
+        return IS_ACTIVE.compareAndSet(this, true, false);
     }
 
     public void setCoverageAmount(int coverageAmount) {
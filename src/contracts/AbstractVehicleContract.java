@@ -25,7 +25,9 @@ public abstract class AbstractVehicleContract extends AbstractContract {
 
     public void setBeneficiary(Person beneficiary){
         validateBeneficiary(beneficiary);
-        this.beneficiary = beneficiary;
+        Person previousBeneficiary = this.beneficiary;
+        this.beneficiary = beneficiary == null ? null : insurer.getPersons().intern(beneficiary);
+        insurer.beneficiaryChanged(this, previousBeneficiary);
     }
 
     public Person getBeneficiary(){
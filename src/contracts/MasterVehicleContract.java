@@ -2,10 +2,17 @@ package contracts;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import company.InsuranceCompany;
 import objects.LegalForm;
 import objects.Person;
 
+/*
+ Fleet contract whose payment state lives in its children. The child set is handed out as a plain
+ LinkedHashSet that callers may change directly, so the active state and the fleet totals are
+ computed from the children on every call instead of being kept as counters. Those reads take the
+ master's stripe, which moves hold while they attach a child.
+ */
 public class MasterVehicleContract extends AbstractVehicleContract {
     private final Set<SingleVehicleContract> childContracts;
 
@@ -32,28 +39,90 @@ public class MasterVehicleContract extends AbstractVehicleContract {
         insurer.moveSingleVehicleContractToMasterVehicleContract(this, contract);
     }
 
+    public void attachChildContract(SingleVehicleContract contract) {
+        if (contract == null) throw new IllegalArgumentException("Child contract cannot be null");
+        childContracts.add(contract);
+    }
 
-    @Override
-    public boolean isActive() {
-        if (childContracts.isEmpty()) {
-            return isActive;
+    public int getActiveChildCount() {
+        Lock lock = insurer.getLocks().lockFor(this);
+        lock.lock();
+        try {
+            int activeChildCount = 0;
+            for (SingleVehicleContract contract : childContracts) {
+                if (contract.isActive()) activeChildCount++;
+            }
+            return activeChildCount;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        for (SingleVehicleContract contract : childContracts) {
-            if (contract.isActive()) {
-                return true;
+    public long getTotalOutstandingBalance() {
+        Lock lock = insurer.getLocks().lockFor(this);
+        lock.lock();
+        try {
+            long totalOutstandingBalance = 0;
+            for (SingleVehicleContract contract : childContracts) {
+                totalOutstandingBalance += contract.getContractPaymentData().getOutstandingBalance();
             }
+            return totalOutstandingBalance;
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
+    public long getTotalCoverageAmount() {
+        Lock lock = insurer.getLocks().lockFor(this);
+        lock.lock();
+        try {
+            long totalCoverageAmount = 0;
+            for (SingleVehicleContract contract : childContracts) {
+                totalCoverageAmount += contract.getCoverageAmount();
+            }
+            return totalCoverageAmount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        Lock lock = insurer.getLocks().lockFor(this);
+        lock.lock();
+        try {
+            if (childContracts.isEmpty()) {
+                return isActive;
+            }
+
+            for (SingleVehicleContract contract : childContracts) {
+                if (contract.isActive()) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     @Override
     public void setInactive() {
-        for (SingleVehicleContract contract : childContracts) {
-            contract.setInactive();
+        Lock lock = insurer.getLocks().lockFor(this);
+        lock.lock();
+        try {
+            for (SingleVehicleContract contract : childContracts) {
+                contract.setInactive();
+            }
+        } finally {
+            lock.unlock();
         }
-        this.isActive = false;
+        if (deactivate()) insurer.contractDeactivated(this);
+    }
+
+    // called by the insurer after a child was deactivated: the master goes inactive with its last active child
+    public void childDeactivated() {
+        if (!isActive() && deactivate()) insurer.contractDeactivated(this);
     }
 
     @Override
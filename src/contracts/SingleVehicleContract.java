@@ -27,8 +27,6 @@ public class SingleVehicleContract extends AbstractVehicleContract {
         this.insuredVehicle = vehicleToInsure;
     }
 
-    p
-
     public Vehicle getInsuredVehicle(){
         return insuredVehicle;
     }
@@ -0,0 +1,65 @@
+package objects;
+
+/*
+ Single pass over the characters of an ID that gives the same answer as
+ Person.isValidBirthNumber followed by Person.isValidRegistrationNumber, without substrings,
+ parsing or exceptions. IDs with non-ASCII digits are left to the Person checks, because
+ Character.isDigit and Integer.parseInt accept them there.
+ */
+public final class IdClassifier {
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private IdClassifier() {
+    }
+
+    // null when the ID is neither a birth number nor a registration number
+    public static LegalForm classify(String id) {
+        if (id == null) return null;
+
+        int length = id.length();
+        int checksum = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Character.isDigit(id.charAt(i)) ? classifySlowly(id) : null;
+            }
+            checksum += (i % 2 == 0) ? digit : -digit;
+        }
+
+        if (length == 9 || length == 10) {
+            if (isBirthNumber(id, length, checksum)) return LegalForm.NATURAL;
+            return null;
+        }
+        if (length == 6 || length == 8) return LegalForm.LEGAL;
+        return null;
+    }
+
+    /*
+    @ help methods
+     */
+    private static boolean isBirthNumber(String id, int length, int checksum) {
+        int year = twoDigits(id, 0);
+        int month = twoDigits(id, 2);
+        int day = twoDigits(id, 4);
+
+        if (!((month >= 1 && month <= 12) || (month >= 51 && month <= 62))) return false;
+        if (month > 50) month -= 50;
+
+        if (length == 10) return checksum % 11 == 0;
+        if (year > 53) return false;
+
+        int daysInMonth = DAYS_IN_MONTH[month - 1];
+        if (month == 2 && year % 4 == 0 && year != 0) daysInMonth = 29;
+        return day >= 1 && day <= daysInMonth;
+    }
+
+    private static int twoDigits(String id, int from) {
+        return (id.charAt(from) - '0') * 10 + (id.charAt(from + 1) - '0');
+    }
+
+    private static LegalForm classifySlowly(String id) {
+        if (Person.isValidBirthNumber(id)) return LegalForm.NATURAL;
+        if (Person.isValidRegistrationNumber(id)) return LegalForm.LEGAL;
+        return null;
+    }
+}
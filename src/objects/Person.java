@@ -1,5 +1,7 @@
 package objects;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
@@ -8,6 +10,16 @@ import java.util.Set;
 import contracts.AbstractContract;
 
 public class Person {
+    private static final VarHandle PAID_OUT_AMOUNT;
+
+    static {
+        try {
+            PAID_OUT_AMOUNT = MethodHandles.lookup().findVarHandle(Person.class, "paidOutAmount", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String id;
     private final LegalForm legalForm;
     private int paidOutAmount;
@@ -18,13 +30,11 @@ public class Person {
             throw new IllegalArgumentException("ID cannot be null or empty");
         }
 
-        if (isValidBirthNumber(id)) {
-            this.legalForm = LegalForm.NATURAL;
-        } else if (isValidRegistrationNumber(id)) {
-            this.legalForm = LegalForm.LEGAL;
-        } else {
+        LegalForm legalForm = IdClassifier.classify(id);
+        if (legalForm == null) {
             throw new IllegalArgumentException("Invalid ID format");
         }
+        this.legalForm = legalForm;
 
         this.id = id;
         this.paidOutAmount = 0;
@@ -99,7 +109,7 @@ public class Person {
     }
 
     public int getPaidOutAmount(){
-        return paidOutAmount;
+        return (int) PAID_OUT_AMOUNT.getVolatile(this);
     }
 
     public LegalForm getLegalForm(){
@@ -117,7 +127,7 @@ public class Person {
 
     public void payout(int paidOutAmount){
         if (paidOutAmount <= 0) throw new IllegalArgumentException("Paid out amount must be positive");
-        this.paidOutAmount += paidOutAmount;
+        PAID_OUT_AMOUNT.getAndAdd(this, paidOutAmount);
     }
 
     @Override
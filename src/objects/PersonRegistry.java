@@ -0,0 +1,43 @@
+package objects;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ One Person instance per ID. The first instance registered for an ID is the one kept,
+ later ones with the same ID resolve to it. IDs are validated once, when the person is created.
+ */
+public class PersonRegistry {
+    private final Map<String, Person> personsById;
+
+    public PersonRegistry() {
+        this.personsById = new ConcurrentHashMap<>();
+    }
+
+    public Person getOrCreate(String id) {
+        if (id == null || id.isEmpty()) throw new IllegalArgumentException("ID cannot be null or empty");
+        Person person = personsById.get(id);
+        if (person != null) return person;
+        return personsById.computeIfAbsent(id, Person::new);
+    }
+
+    public Person intern(Person person) {
+        if (person == null) throw new IllegalArgumentException("Person cannot be null");
+        Person existing = personsById.putIfAbsent(person.getId(), person);
+        return existing == null ? person : existing;
+    }
+
+    public Person find(String id) {
+        if (id == null) return null;
+        return personsById.get(id);
+    }
+
+    public boolean remove(Person person) {
+        if (person == null) return false;
+        return personsById.remove(person.getId(), person);
+    }
+
+    public int size() {
+        return personsById.size();
+    }
+}
@@ -1,12 +1,36 @@
 package payment;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
 
+/*
+ Balance and next payment time are updated atomically, so payments and premium accrual on the
+ same contract need no common lock. Accrual claims its periods by moving nextPaymentTime with
+ compareAndSet first, only the winner charges the balance.
+ After moveTo the fields are cleared and the object is a view of its PortfolioStore slot. The store
+ is published through a volatile write after the slot, so readers that see it also see its slot.
+ */
 public class ContractPaymentData {
+    private static final VarHandle OUTSTANDING_BALANCE;
+    private static final VarHandle NEXT_PAYMENT_TIME;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            OUTSTANDING_BALANCE = lookup.findVarHandle(ContractPaymentData.class, "outstandingBalance", int.class);
+            NEXT_PAYMENT_TIME = lookup.findVarHandle(ContractPaymentData.class, "nextPaymentTime", LocalDateTime.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private int premium;
     private PremiumPaymentFrequency premiumPaymentFrequency;
     private LocalDateTime nextPaymentTime;
     private int outstandingBalance;
+    private volatile PortfolioStore store;
+    private int slot;
 
     public ContractPaymentData(int premium, PremiumPaymentFrequency premiumPaymentFrequency,
                                LocalDateTime nextPaymentTime, int outstandingBalance)
@@ -21,38 +45,174 @@ public class ContractPaymentData {
         this.outstandingBalance = outstandingBalance;
     }
 
+    // the fields are copied into a new slot of the store; no update may run meanwhile, so call it before
+    // the payment data is shared or while holding the contract's stripe with no billing running
+    public void moveTo(PortfolioStore store) {
+        if (store == null) throw new IllegalArgumentException("Store cannot be null");
+        if (this.store != null) throw new IllegalStateException("Payment data is already stored");
+
+        this.slot = store.add(premium, premiumPaymentFrequency, getNextPaymentTime(), getOutstandingBalance());
+        this.store = store;
+
+        this.premium = 0;
+        this.premiumPaymentFrequency = null;
+        NEXT_PAYMENT_TIME.setVolatile(this, null);
+        OUTSTANDING_BALANCE.setVolatile(this, 0);
+    }
+
+    public boolean isStored() {
+        return store != null;
+    }
+
     public int getPremium(){
-        return premium;
+        return store != null ? store.premium(slot) : premium;
     }
 
     public void setPremium(int premium){
         validatePremium(premium);
-        this.premium = premium;
+        if (store != null) {
+            store.setPremium(slot, premium);
+        } else {
+            this.premium = premium;
+        }
     }
 
     public void setOutstandingBalance(int outstandingBalance){
-        this.outstandingBalance = outstandingBalance;
+        if (store != null) {
+            store.getAndSetBalance(slot, outstandingBalance);
+        } else {
+            OUTSTANDING_BALANCE.setVolatile(this, outstandingBalance);
+        }
     }
 
     public int getOutstandingBalance(){
-        return outstandingBalance;
+        return store != null ? store.balance(slot) : (int) OUTSTANDING_BALANCE.getVolatile(this);
+    }
+
+    // wraps around on overflow like a plain int update, returns the new balance
+    public int addToOutstandingBalance(int amount){
+        int previousBalance = store != null ? store.getAndAddBalance(slot, amount)
+                : (int) OUTSTANDING_BALANCE.getAndAdd(this, amount);
+        return previousBalance + amount;
+    }
+
+    // throws ArithmeticException and leaves the balance unchanged when the result does not fit
+    public int addToOutstandingBalanceExact(long amount){
+        while (true) {
+            int previousBalance = getOutstandingBalance();
+            int newBalance = Math.toIntExact(previousBalance + amount);
+            if (casOutstandingBalance(previousBalance, newBalance)) return newBalance;
+        }
+    }
+
+    public boolean compareAndSetOutstandingBalance(int expectedBalance, int newBalance){
+        return casOutstandingBalance(expectedBalance, newBalance);
     }
 
     public void setPremiumPaymentFrequency(PremiumPaymentFrequency premiumPaymentFrequency){
         validatePremiumPaymentFrequency(premiumPaymentFrequency);
-        this.premiumPaymentFrequency = premiumPaymentFrequency;
+        if (store != null) {
+            store.setFrequency(slot, premiumPaymentFrequency);
+        } else {
+            this.premiumPaymentFrequency = premiumPaymentFrequency;
+        }
     }
 
     public PremiumPaymentFrequency getPremiumPaymentFrequency(){
-        return premiumPaymentFrequency;
+        return store != null ? store.frequency(slot) : premiumPaymentFrequency;
     }
 
     public LocalDateTime getNextPaymentTime(){
-        return nextPaymentTime;
+        if (store != null) return PremiumAccrual.toDateTime(store.dueDate(slot), store.dueNanoOfDay(slot));
+        return (LocalDateTime) NEXT_PAYMENT_TIME.getVolatile(this);
     }
 
     public void updateNextPaymentTime() {
-        nextPaymentTime = nextPaymentTime.plusMonths(premiumPaymentFrequency.getValueInMonths());
+        updateNextPaymentTime(1);
+    }
+
+    public void updateNextPaymentTime(long periods) {
+        if (store != null) {
+            int months = store.frequency(slot).getValueInMonths();
+            store.setDueDate(slot, PremiumAccrual.advance(store.dueDate(slot), months, periods));
+            return;
+        }
+        NEXT_PAYMENT_TIME.setVolatile(this, PremiumAccrual.advance(getNextPaymentTime(), premiumPaymentFrequency, periods));
+    }
+
+    // compares by reference, pass the instance read from getNextPaymentTime; stored data compares by value
+    // and keeps its time of day. The time only moves forward, DueDateIndex relies on it
+    public boolean compareAndSetNextPaymentTime(LocalDateTime expectedTime, LocalDateTime nextTime){
+        validateNextPaymentTime(nextTime);
+        if (expectedTime != null && nextTime.isBefore(expectedTime)) {
+            throw new IllegalArgumentException("Next payment time cannot move backwards");
+        }
+        if (store == null) return NEXT_PAYMENT_TIME.compareAndSet(this, expectedTime, nextTime);
+
+        long nanoOfDay = store.dueNanoOfDay(slot);
+        if (nextTime.toLocalTime().toNanoOfDay() != nanoOfDay) {
+            throw new IllegalArgumentException("Next payment time must keep the time of day");
+        }
+        if (expectedTime == null || expectedTime.toLocalTime().toNanoOfDay() != nanoOfDay) return false;
+        return store.compareAndSetDueDate(slot, PremiumAccrual.dueDate(expectedTime), PremiumAccrual.dueDate(nextTime));
+    }
+
+    // charges every period due by currentTime and returns how many there were; on overflow the
+    // ArithmeticException is thrown with neither the balance nor the next payment time changed
+    public long accrue(LocalDateTime currentTime) {
+        if (currentTime == null) throw new IllegalArgumentException("Current time cannot be null");
+        if (store != null) return accrueStored(currentTime);
+
+        while (true) {
+            LocalDateTime nextPaymentTime = getNextPaymentTime();
+            PremiumPaymentFrequency frequency = premiumPaymentFrequency;
+            long periods = PremiumAccrual.periodsDue(nextPaymentTime, frequency, currentTime);
+            if (periods == 0) return 0;
+
+            long charged = Math.multiplyExact(periods, (long) premium);
+            LocalDateTime advanced = PremiumAccrual.advance(nextPaymentTime, frequency, periods);
+            if (!NEXT_PAYMENT_TIME.compareAndSet(this, nextPaymentTime, advanced)) continue;
+
+            try {
+                addToOutstandingBalanceExact(charged);
+            } catch (ArithmeticException e) {
+                NEXT_PAYMENT_TIME.compareAndSet(this, advanced, nextPaymentTime);
+                throw e;
+            }
+            return periods;
+        }
+    }
+
+    private long accrueStored(LocalDateTime currentTime) {
+        long currentMonthIndex = PremiumAccrual.monthIndex(currentTime);
+        int currentDay = currentTime.getDayOfMonth();
+        long currentNanoOfDay = currentTime.toLocalTime().toNanoOfDay();
+        long dueNanoOfDay = store.dueNanoOfDay(slot);
+
+        while (true) {
+            long dueDate = store.dueDate(slot);
+            int months = store.frequency(slot).getValueInMonths();
+            long periods = PremiumAccrual.periodsDue(PremiumAccrual.dueMonthIndex(dueDate), PremiumAccrual.dueDay(dueDate),
+                    dueNanoOfDay, months, currentMonthIndex, currentDay, currentNanoOfDay);
+            if (periods == 0) return 0;
+
+            long charged = Math.multiplyExact(periods, (long) store.premium(slot));
+            long advanced = PremiumAccrual.advance(dueDate, months, periods);
+            if (!store.compareAndSetDueDate(slot, dueDate, advanced)) continue;
+
+            try {
+                addToOutstandingBalanceExact(charged);
+            } catch (ArithmeticException e) {
+                store.compareAndSetDueDate(slot, advanced, dueDate);
+                throw e;
+            }
+            return periods;
+        }
+    }
+
+    private boolean casOutstandingBalance(int expectedBalance, int newBalance) {
+        if (store != null) return store.compareAndSetBalance(slot, expectedBalance, newBalance);
+        return OUTSTANDING_BALANCE.compareAndSet(this, expectedBalance, newBalance);
     }
 
     /*
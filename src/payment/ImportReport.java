@@ -0,0 +1,45 @@
+package payment;
+
+public class ImportReport {
+    private final long linesRead;
+    private final long applied;
+    private final long rejected;
+    private final long bytesRead;
+    private final long elapsedNanos;
+
+    public ImportReport(long linesRead, long applied, long rejected, long bytesRead, long elapsedNanos) {
+        this.linesRead = linesRead;
+        this.applied = applied;
+        this.rejected = rejected;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getLinesPerSecond() {
+        return elapsedNanos == 0 ? 0 : linesRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead * 1_000.0 / elapsedNanos;
+    }
+}
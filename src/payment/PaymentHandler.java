@@ -1,46 +1,138 @@
 package payment;
 
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import company.InsuranceCompany;
 import contracts.AbstractContract;
 import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
 import contracts.InvalidContractException;
 
 
 public class PaymentHandler {
     private final Map<AbstractContract, Set<PaymentInstance>> paymentHistory;
+    private final PaymentLedger ledger;
     private final InsuranceCompany insurer;
+    private volatile PaymentJournal journal;
 
     public PaymentHandler(InsuranceCompany insurer) {
         if (insurer == null) throw new IllegalArgumentException("Insurer can not be null");
 
         this.insurer = insurer;
-        this.paymentHistory = new HashMap<>();
+        this.ledger = new PaymentLedger(insurer::getCurrentTime);
+        this.paymentHistory = ledger.asMap();
     }
 
     public Map<AbstractContract, Set<PaymentInstance>> getPaymentHistory() {
         return paymentHistory;
     }
 
+    public PaymentLedger getLedger() {
+        return ledger;
+    }
+
+    public PaymentJournal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(PaymentJournal journal) {
+        this.journal = journal;
+    }
+
     public void pay(MasterVehicleContract contract, int amount) {
-        validateContractAndAmount(contract, amount);
-        if (contract.getChildContracts().isEmpty()) throw new InvalidContractException("Contract has no child contracts");
+        if (contract == null) throw new IllegalArgumentException("Contract can not be null");
 
-        int remainingAmount = payOffOutstandingBalance(contract, amount);
-        payForPremiums(contract, remainingAmount);
+        Lock lock = insurer.getLocks().lockFor(contract);
+        lock.lock();
+        try {
+            validateContractAndAmount(contract, amount);
+            if (contract.getChildContracts().isEmpty()) throw new InvalidContractException("Contract has no child contracts");
 
-        recordPayment(contract, amount);
+            applyPayment(contract, amount);
+            recordPayment(contract, amount);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void pay(AbstractContract contract, int amount) {
-        validateContractAndAmount(contract, amount);
+        if (contract == null) throw new IllegalArgumentException("Contract can not be null");
+
+        Lock lock = insurer.getLocks().lockFor(contract);
+        lock.lock();
+        try {
+            validateContractAndAmount(contract, amount);
+
+            writeAhead(contract, amount);
+            applyPayment(contract, amount);
+            recordPayment(contract, amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<PaymentResult> payBatch(Collection<PaymentRequest> requests) {
+        if (requests == null) throw new IllegalArgumentException("Requests can not be null");
 
-        int outstandingBalance = contract.getContractPaymentData().getOutstandingBalance();
-        contract.getContractPaymentData().setOutstandingBalance(outstandingBalance - amount);
+        List<PaymentResult> results = new ArrayList<>(requests.size());
 
-        recordPayment(contract, amount);
+        for (PaymentRequest request : requests) {
+            if (request == null) throw new IllegalArgumentException("Request can not be null");
+
+            String reason = payByNumber(request.getContractNumber(), request.getAmount());
+            results.add(reason == null ? PaymentResult.applied(request) : PaymentResult.rejected(request, reason));
+        }
+        return results;
+    }
+
+    // replays journaled payments onto contracts restored without them, returns how many payments there were;
+    // master payments apply the journaled shares of their children
+    public long recover(PaymentJournal journal) {
+        if (journal == null) throw new IllegalArgumentException("Journal can not be null");
+
+        List<AbstractContract> shareholders = new ArrayList<>();
+        List<Integer> shares = new ArrayList<>();
+        long payments = 0;
+        long size = journal.size();
+        for (long i = 0; i < size; i++) {
+            String contractNumber = journal.contractNumberAt(i);
+            AbstractContract contract = insurer.findContract(contractNumber);
+            if (contract == null) {
+                throw new InvalidContractException("Journal refers to unknown contract " + contractNumber);
+            }
+
+            int amount = journal.amountAt(i);
+            if (journal.isAllocationAt(i)) {
+                shareholders.add(contract);
+                shares.add(amount);
+                continue;
+            }
+
+            Lock lock = insurer.getLocks().lockFor(contract);
+            lock.lock();
+            try {
+                if (contract instanceof MasterVehicleContract) {
+                    for (int share = 0; share < shares.size(); share++) {
+                        applyPayment(shareholders.get(share), shares.get(share));
+                    }
+                } else {
+                    applyPayment(contract, amount);
+                }
+                ledger.append(contract, journal.paymentTimeAt(i), amount);
+            } finally {
+                lock.unlock();
+            }
+            shareholders.clear();
+            shares.clear();
+            payments++;
+        }
+        return payments;
     }
 
     /*
@@ -57,57 +149,129 @@ public class PaymentHandler {
         }
     }
 
-    private int payOffOutstandingBalance(MasterVehicleContract contract, int amount) {
-        int remainingAmount = amount;
+    // returns the rejection reason, or null when the payment was applied
+    String payByNumber(String contractNumber, int amount) {
+        AbstractContract contract = insurer.findContract(contractNumber);
+        if (contract == null) return "Unknown contract";
 
-        for (AbstractContract childContract : contract.getChildContracts()) {
-            if (!childContract.isActive()) continue;
+        Lock lock = insurer.getLocks().lockFor(contract);
+        lock.lock();
+        try {
+            String reason = rejectionReason(contract, amount);
+            if (reason != null) return reason;
 
-            ContractPaymentData contractPaymentData = childContract.getContractPaymentData();
-            int outstandingBalance = contractPaymentData.getOutstandingBalance();
+            if (contract instanceof MasterVehicleContract master) {
+                applyPayment(master, amount);
+            } else {
+                writeAhead(contract, amount);
+                applyPayment(contract, amount);
+            }
+            recordPayment(contract, amount);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            if (outstandingBalance > 0) {
-                if (remainingAmount >= outstandingBalance) {
-                    remainingAmount -= outstandingBalance;
-                    contractPaymentData.setOutstandingBalance(0);
-                } else {
-                    contractPaymentData.setOutstandingBalance(outstandingBalance - remainingAmount);
-                    remainingAmount = 0;
-                    break;
-                }
+    private String rejectionReason(AbstractContract contract, int amount) {
+        if (contract == null) return "Unknown contract";
+        if (amount <= 0) return "Amount is not positive";
+        if (contract.getInsurer() != insurer) return "Contract does not belong to this insurer";
+        if (!contract.isActive()) return "Contract is not active";
+        if (contract instanceof MasterVehicleContract master && master.getChildContracts().isEmpty()) {
+            return "Contract has no child contracts";
+        }
+        if (journal != null && !canJournal(contract)) {
+            return "Contract number is too long for the payment journal";
+        }
+        return null;
+    }
+
+    private static boolean canJournal(AbstractContract contract) {
+        if (!PaymentJournal.canRecord(contract.getContractNumber())) return false;
+        if (contract instanceof MasterVehicleContract master) {
+            for (SingleVehicleContract child : master.getChildContracts()) {
+                if (!PaymentJournal.canRecord(child.getContractNumber())) return false;
+            }
+        }
+        return true;
+    }
+
+    // the split is journaled before it is applied, so recovery does not depend on later balances
+    private void applyPayment(MasterVehicleContract contract, int amount) {
+        List<SingleVehicleContract> children = new ArrayList<>(contract.getChildContracts());
+        int[] shares = allocate(children, amount);
+
+        PaymentJournal current = journal;
+        if (current != null) {
+            String[] childNumbers = new String[children.size()];
+            for (int i = 0; i < childNumbers.length; i++) {
+                childNumbers[i] = children.get(i).getContractNumber();
             }
+            current.appendMasterPayment(contract.getContractNumber(), insurer.getCurrentTime(), amount,
+                    childNumbers, shares);
         }
 
-        return remainingAmount;
+        for (int i = 0; i < shares.length; i++) {
+            if (shares[i] != 0) applyPayment(children.get(i), shares[i]);
+        }
     }
 
-    private void payForPremiums(MasterVehicleContract contract, int amount) {
-        while (amount > 0) {
-            int initialAmount = amount;
+    private void applyPayment(AbstractContract contract, int amount) {
+        contract.getContractPaymentData().addToOutstandingBalance(-amount);
+    }
 
-            for (AbstractContract child : contract.getChildContracts()) {
-                if (!child.isActive()) continue;
+    // share of every child in order: outstanding balances are paid off first, the rest goes to premiums.
+    // Accrual only raises balances, so a share never exceeds the balance it was computed from
+    private static int[] allocate(List<SingleVehicleContract> children, int amount) {
+        int[] shares = new int[children.size()];
+        int remainingAmount = amount;
 
-                ContractPaymentData data = child.getContractPaymentData();
-                int premium = data.getPremium();
-                if (premium <= 0) continue;
+        for (int i = 0; i < shares.length && remainingAmount > 0; i++) {
+            SingleVehicleContract child = children.get(i);
+            if (!child.isActive()) continue;
 
-                int payment = Math.min(amount, premium);
-                data.setOutstandingBalance(data.getOutstandingBalance() - payment);
-                amount -= payment;
+            shares[i] = Math.min(remainingAmount, Math.max(child.getContractPaymentData().getOutstandingBalance(), 0));
+            remainingAmount -= shares[i];
+        }
+        payForPremiums(children, remainingAmount, shares);
+        return shares;
+    }
 
-                if (amount == 0) break;
-            }
+    // full rounds of premiums are divided out, only the last partial round is walked in order
+    private static void payForPremiums(List<SingleVehicleContract> children, int amount, int[] shares) {
+        if (amount <= 0) return;
 
-            if (amount == initialAmount) break; // no progress made
+        long roundTotal = 0;
+        for (SingleVehicleContract child : children) {
+            if (child.isActive()) roundTotal += child.getContractPaymentData().getPremium();
+        }
+        if (roundTotal == 0) return;
+
+        long fullRounds = amount / roundTotal;
+        long remainder = amount - fullRounds * roundTotal;
+
+        for (int i = 0; i < shares.length; i++) {
+            SingleVehicleContract child = children.get(i);
+            if (!child.isActive()) continue;
+
+            int premium = child.getContractPaymentData().getPremium();
+            long partial = Math.min(remainder, premium);
+            remainder -= partial;
+
+            shares[i] += (int) (fullRounds * premium + partial);
         }
     }
 
     private void recordPayment(AbstractContract contract, int amount) {
-        LocalDateTime currentTime = insurer.getCurrentTime();
-        PaymentInstance paymentInstance = new PaymentInstance(currentTime, amount);
+        LocalDateTime paymentTime = insurer.getCurrentTime();
+        ledger.append(contract, paymentTime, amount);
+        insurer.paymentApplied(contract, paymentTime, amount);
+    }
 
-        paymentHistory.putIfAbsent(contract, new TreeSet<>());
-        paymentHistory.get(contract).add(paymentInstance);
+    private void writeAhead(AbstractContract contract, int amount) {
+        if (journal != null) {
+            journal.append(contract.getContractNumber(), insurer.getCurrentTime(), amount);
+        }
     }
 }
@@ -0,0 +1,179 @@
+package payment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ Streams a bank statement into the payment handler. The file is read through a fixed buffer
+ and parsed in place, one line per payment:
+   delimited:    <contract number><delimiter><amount>
+   fixed width:  <contract number padded to numberWidth><amount>
+ Rejected lines are copied to the rejection file followed by a tab and the reason; of a line longer
+ than the buffer only the part that fitted is copied.
+ */
+public class PaymentImporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final PaymentHandler handler;
+    private final byte delimiter;
+    private final int numberWidth;
+
+    private PaymentImporter(PaymentHandler handler, byte delimiter, int numberWidth) {
+        if (handler == null) throw new IllegalArgumentException("Handler can not be null");
+
+        this.handler = handler;
+        this.delimiter = delimiter;
+        this.numberWidth = numberWidth;
+    }
+
+    public static PaymentImporter delimited(PaymentHandler handler, char delimiter) {
+        if (delimiter >= 0x80 || Character.isDigit(delimiter) || delimiter == '\n') {
+            throw new IllegalArgumentException("Delimiter must be a single byte character other than a digit");
+        }
+        return new PaymentImporter(handler, (byte) delimiter, 0);
+    }
+
+    public static PaymentImporter fixedWidth(PaymentHandler handler, int numberWidth) {
+        if (numberWidth <= 0) throw new IllegalArgumentException("Number width must be positive");
+        return new PaymentImporter(handler, (byte) 0, numberWidth);
+    }
+
+    public ImportReport importFile(Path paymentFile, Path rejectionFile) {
+        if (paymentFile == null) throw new IllegalArgumentException("Payment file cannot be null");
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(paymentFile, StandardOpenOption.READ);
+             BufferedWriter rejections = rejectionFile == null ? null : Files.newBufferedWriter(rejectionFile)) {
+            Run run = new Run(rejections);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            boolean skipping = false;
+
+            while (channel.read(buffer) >= 0) {
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        if (!skipping) run.line(bytes, lineStart, i);
+                        skipping = false;
+                        lineStart = i + 1;
+                    }
+                }
+
+                // the rest of a line that does not fit the buffer is skipped up to its end
+                if (lineStart == 0 && limit == bytes.length) {
+                    if (!skipping) run.tooLong(bytes, limit);
+                    skipping = true;
+                    lineStart = limit;
+                }
+                buffer.flip().position(lineStart);
+                buffer.compact();
+            }
+            if (buffer.position() > 0 && !skipping) {
+                run.line(bytes, 0, buffer.position());
+            }
+
+            return new ImportReport(run.lines, run.applied, run.rejected, channel.size(), System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    @ help methods
+     */
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] == ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] == ' ' || bytes[to - 1] == '\r')) to--;
+        return to;
+    }
+
+    // Integer.MIN_VALUE marks a malformed amount, negative amounts are left to the handler to reject
+    private static int parseAmount(byte[] bytes, int from, int to) {
+        boolean negative = from < to && bytes[from] == '-';
+        if (negative) from++;
+        if (from == to) return Integer.MIN_VALUE;
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) return Integer.MIN_VALUE;
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) return Integer.MIN_VALUE;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private class Run {
+        private final BufferedWriter rejections;
+        private long lines;
+        private long applied;
+        private long rejected;
+
+        Run(BufferedWriter rejections) {
+            this.rejections = rejections;
+        }
+
+        void line(byte[] bytes, int from, int to) throws IOException {
+            int end = trimEnd(bytes, from, to);
+            if (trimStart(bytes, from, end) == end) return;
+            lines++;
+
+            int split = numberWidth > 0 ? Math.min(from + numberWidth, end) : indexOf(bytes, from, end);
+            if (split < 0) {
+                reject(bytes, from, end, "Malformed line");
+                return;
+            }
+
+            int numberFrom = trimStart(bytes, from, split);
+            int numberTo = trimEnd(bytes, numberFrom, split);
+            int amountFrom = trimStart(bytes, numberWidth > 0 ? split : split + 1, end);
+            int amount = parseAmount(bytes, amountFrom, end);
+            if (numberFrom == numberTo || amount == Integer.MIN_VALUE) {
+                reject(bytes, from, end, "Malformed line");
+                return;
+            }
+
+            String contractNumber = new String(bytes, numberFrom, numberTo - numberFrom, StandardCharsets.UTF_8);
+            String reason = handler.payByNumber(contractNumber, amount);
+            if (reason == null) {
+                applied++;
+            } else {
+                reject(bytes, from, end, reason);
+            }
+        }
+
+        void tooLong(byte[] bytes, int to) throws IOException {
+            lines++;
+            reject(bytes, 0, to, "Line is longer than " + BUFFER_SIZE + " bytes");
+        }
+
+        private int indexOf(byte[] bytes, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == delimiter) return i;
+            }
+            return -1;
+        }
+
+        private void reject(byte[] bytes, int from, int to, String reason) throws IOException {
+            rejected++;
+            if (rejections == null) return;
+
+            rejections.write(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            rejections.write('\t');
+            rejections.write(reason);
+            rejections.newLine();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package payment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/*
+ Write-ahead journal of recorded payments in a memory-mapped file.
+
+ header:  int magic | int version | long record count
+ record:  long epoch second | int nano | int amount | int crc32 | byte kind | byte number length
+          | 42 bytes contract number
+
+ A payment to a master contract is written as one group: an allocation record for every child that
+ received a share, then the payment record of the master. Recovery applies the shares as they were
+ split at the time instead of running the split again over balances that accrued since, and drops
+ allocations whose payment record did not make it to the journal.
+
+ The checksum covers every other byte of the record. Dirty pages of the mapping reach the disk in no
+ particular order after a crash, so opening the journal keeps the records up to the first one whose
+ checksum does not match and recovery never replays a torn record. The mapping is forced to disk
+ every groupCommitSize records and on close.
+ */
+public class PaymentJournal implements Closeable {
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_CONTRACT_NUMBER_BYTES = 42;
+
+    private static final int MAGIC = 0x50594A4E;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int CRC_OFFSET = 16;
+    private static final int KIND_OFFSET = 20;
+    private static final int NUMBER_OFFSET = 21;
+    private static final byte PAYMENT = 0;
+    private static final byte ALLOCATION = 1;
+    private static final int INITIAL_RECORDS = 1 << 16;
+
+    private final FileChannel channel;
+    private final int groupCommitSize;
+    private final CRC32 crc;
+    private MappedByteBuffer buffer;
+    private long size;
+    private int uncommitted;
+
+    private PaymentJournal(FileChannel channel, int groupCommitSize) throws IOException {
+        this.channel = channel;
+        this.groupCommitSize = groupCommitSize;
+        this.crc = new CRC32();
+        this.uncommitted = 0;
+
+        if (channel.size() == 0) {
+            map(INITIAL_RECORDS);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(COUNT_OFFSET, 0);
+            this.size = 0;
+        } else {
+            map(Math.max(INITIAL_RECORDS, (channel.size() - HEADER_SIZE) / RECORD_SIZE));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("File is not a payment journal");
+            }
+            this.size = intactRecords(Math.min(buffer.getLong(COUNT_OFFSET), capacity()));
+            buffer.putLong(COUNT_OFFSET, size);
+        }
+    }
+
+    public static PaymentJournal open(Path path, int groupCommitSize) {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        if (groupCommitSize <= 0) throw new IllegalArgumentException("Group commit size must be positive");
+
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new PaymentJournal(channel, groupCommitSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static boolean canRecord(String contractNumber) {
+        if (contractNumber == null || contractNumber.length() > MAX_CONTRACT_NUMBER_BYTES) return false;
+        for (int i = 0; i < contractNumber.length(); i++) {
+            if (contractNumber.charAt(i) >= 0x80) {
+                return contractNumber.getBytes(StandardCharsets.UTF_8).length <= MAX_CONTRACT_NUMBER_BYTES;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void append(String contractNumber, LocalDateTime paymentTime, int amount) {
+        if (!canRecord(contractNumber)) throw new IllegalArgumentException("Contract number is too long for the payment journal");
+
+        write(PAYMENT, contractNumber, paymentTime, amount);
+        buffer.putLong(COUNT_OFFSET, size);
+        if (++uncommitted >= groupCommitSize) commit();
+    }
+
+    // shares[i] is the part of the payment applied to childNumbers[i], children without a share are skipped
+    public synchronized void appendMasterPayment(String masterNumber, LocalDateTime paymentTime, int amount,
+                                                 String[] childNumbers, int[] shares) {
+        if (childNumbers.length != shares.length) throw new IllegalArgumentException("Every child needs a share");
+        if (!canRecord(masterNumber)) throw new IllegalArgumentException("Contract number is too long for the payment journal");
+        for (int i = 0; i < childNumbers.length; i++) {
+            if (shares[i] != 0 && !canRecord(childNumbers[i])) {
+                throw new IllegalArgumentException("Contract number is too long for the payment journal");
+            }
+        }
+
+        for (int i = 0; i < childNumbers.length; i++) {
+            if (shares[i] != 0) write(ALLOCATION, childNumbers[i], paymentTime, shares[i]);
+        }
+        write(PAYMENT, masterNumber, paymentTime, amount);
+        buffer.putLong(COUNT_OFFSET, size);
+        if (++uncommitted >= groupCommitSize) commit();
+    }
+
+    public synchronized void commit() {
+        buffer.force();
+        uncommitted = 0;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized String contractNumberAt(long index) {
+        int offset = offset(checkIndex(index)) + NUMBER_OFFSET;
+        byte[] bytes = new byte[buffer.get(offset)];
+        buffer.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // true for a child's share of the master payment recorded after it
+    public synchronized boolean isAllocationAt(long index) {
+        return buffer.get(offset(checkIndex(index)) + KIND_OFFSET) == ALLOCATION;
+    }
+
+    public synchronized LocalDateTime paymentTimeAt(long index) {
+        int offset = offset(checkIndex(index));
+        return LocalDateTime.ofEpochSecond(buffer.getLong(offset), buffer.getInt(offset + 8), ZoneOffset.UTC);
+    }
+
+    public synchronized int amountAt(long index) {
+        return buffer.getInt(offset(checkIndex(index)) + 12);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            commit();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    @ help methods
+     */
+    private void write(byte kind, String contractNumber, LocalDateTime paymentTime, int amount) {
+        if (size == capacity()) map(capacity() * 2);
+
+        int offset = offset(size);
+        buffer.putLong(offset, paymentTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(offset + 8, paymentTime.getNano());
+        buffer.putInt(offset + 12, amount);
+        buffer.put(offset + KIND_OFFSET, kind);
+        writeContractNumber(offset + NUMBER_OFFSET, contractNumber);
+        buffer.putInt(offset + CRC_OFFSET, checksum(offset));
+        size++;
+    }
+
+    private void writeContractNumber(int offset, String contractNumber) {
+        int length = contractNumber.length();
+        boolean ascii = length <= MAX_CONTRACT_NUMBER_BYTES;
+        for (int i = 0; ascii && i < length; i++) {
+            ascii = contractNumber.charAt(i) < 0x80;
+        }
+
+        if (ascii) {
+            buffer.put(offset, (byte) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put(offset + 1 + i, (byte) contractNumber.charAt(i));
+            }
+            return;
+        }
+
+        byte[] bytes = contractNumber.getBytes(StandardCharsets.UTF_8);
+        buffer.put(offset, (byte) bytes.length);
+        buffer.put(offset + 1, bytes);
+    }
+
+    private long intactRecords(long count) {
+        for (long i = 0; i < count; i++) {
+            int offset = offset(i);
+            if (buffer.getInt(offset + CRC_OFFSET) != checksum(offset)) return i;
+        }
+        return count;
+    }
+
+    private int checksum(int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        crc.update(buffer.slice(offset + KIND_OFFSET, RECORD_SIZE - KIND_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private long capacity() {
+        return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static int offset(long index) {
+        return Math.toIntExact(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    private long checkIndex(long index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("No journal record " + index);
+        return index;
+    }
+
+    private void map(long records) {
+        try {
+            if (buffer != null) buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + records * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package payment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import contracts.AbstractContract;
+
+/*
+ Append-only payment history. Every contract has its own columns sorted by payment time,
+ payments with the same time keep their recording order. Times are stored as epoch second and
+ nano columns (UTC), so recording a payment allocates nothing once the columns have grown.
+ runningTotals[i] is the sum of amounts[0..i], so sums over a time range are two binary
+ searches. The map view shows one payment per distinct time, like the TreeSet it replaced.
+ Times are rebuilt from the columns; one equal to the clock's current time is handed back as the
+ clock's own instance.
+ Each column is locked on its own, so payments to different contracts never wait for each other;
+ iterate the map view once payments have settled.
+ */
+public class PaymentLedger {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final Map<String, Column> columns;
+    private final Map<AbstractContract, Set<PaymentInstance>> historyView;
+    private final Supplier<LocalDateTime> clock;
+
+    public PaymentLedger(Supplier<LocalDateTime> clock) {
+        if (clock == null) throw new IllegalArgumentException("Clock cannot be null");
+
+        this.clock = clock;
+        this.columns = new ConcurrentHashMap<>();
+        this.historyView = new HistoryView();
+    }
+
+    public void append(AbstractContract contract, LocalDateTime paymentTime, int amount) {
+        if (contract == null) throw new IllegalArgumentException("Contract can not be null");
+        if (paymentTime == null) throw new IllegalArgumentException("Payment time cannot be null");
+        if (amount <= 0) throw new IllegalArgumentException("Payment amount must be positive");
+
+        Column column = columns.computeIfAbsent(contract.getContractNumber(), number -> new Column(contract));
+        synchronized (column) {
+            column.insert(paymentTime, amount);
+        }
+    }
+
+    public int count(AbstractContract contract) {
+        Column column = find(contract);
+        if (column == null) return 0;
+
+        synchronized (column) {
+            return column.size;
+        }
+    }
+
+    public long total(AbstractContract contract) {
+        Column column = find(contract);
+        if (column == null) return 0;
+
+        synchronized (column) {
+            return column.sumBefore(column.size);
+        }
+    }
+
+    public long total(AbstractContract contract, LocalDateTime fromInclusive, LocalDateTime toExclusive) {
+        Column column = find(contract);
+        if (column == null) return 0;
+
+        synchronized (column) {
+            int from = column.lowerBound(fromInclusive);
+            int to = column.lowerBound(toExclusive);
+            return from >= to ? 0 : column.sumBefore(to) - column.sumBefore(from);
+        }
+    }
+
+    public List<PaymentInstance> payments(AbstractContract contract, LocalDateTime fromInclusive,
+                                          LocalDateTime toExclusive) {
+        Column column = find(contract);
+        if (column == null) return Collections.emptyList();
+
+        synchronized (column) {
+            int from = column.lowerBound(fromInclusive);
+            int to = column.lowerBound(toExclusive);
+            List<PaymentInstance> payments = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                payments.add(instanceAt(column, i));
+            }
+            return payments;
+        }
+    }
+
+    public Map<AbstractContract, Set<PaymentInstance>> asMap() {
+        return historyView;
+    }
+
+    /*
+    @ help methods
+     */
+    private Column find(Object key) {
+        if (!(key instanceof AbstractContract contract)) return null;
+
+        Column column = columns.get(contract.getContractNumber());
+        return column != null && column.contract.equals(contract) ? column : null;
+    }
+
+    private PaymentInstance instanceAt(Column column, int index) {
+        return new PaymentInstance(column.timeAt(index, clock.get()), column.amounts[index]);
+    }
+
+    private static final class Column {
+        private final AbstractContract contract;
+        private long[] seconds;
+        private int[] nanos;
+        private int[] amounts;
+        private long[] runningTotals;
+        private int size;
+        private int distinctTimes;
+
+        Column(AbstractContract contract) {
+            this.contract = contract;
+            this.seconds = new long[INITIAL_CAPACITY];
+            this.nanos = new int[INITIAL_CAPACITY];
+            this.amounts = new int[INITIAL_CAPACITY];
+            this.runningTotals = new long[INITIAL_CAPACITY];
+            this.size = 0;
+            this.distinctTimes = 0;
+        }
+
+        void insert(LocalDateTime time, int amount) {
+            if (size == seconds.length) grow();
+
+            long second = time.toEpochSecond(ZoneOffset.UTC);
+            int nano = time.getNano();
+            int index = size;
+            while (index > 0 && compareAt(index - 1, second, nano) > 0) {
+                index--;
+            }
+            if (index == 0 || compareAt(index - 1, second, nano) != 0) {
+                distinctTimes++;
+            }
+            if (index < size) {
+                System.arraycopy(seconds, index, seconds, index + 1, size - index);
+                System.arraycopy(nanos, index, nanos, index + 1, size - index);
+                System.arraycopy(amounts, index, amounts, index + 1, size - index);
+            }
+            seconds[index] = second;
+            nanos[index] = nano;
+            amounts[index] = amount;
+            size++;
+
+            for (int i = index; i < size; i++) {
+                runningTotals[i] = (i == 0 ? 0 : runningTotals[i - 1]) + amounts[i];
+            }
+        }
+
+        // first index whose payment time is not before the given time
+        int lowerBound(LocalDateTime time) {
+            long second = time.toEpochSecond(ZoneOffset.UTC);
+            int nano = time.getNano();
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareAt(middle, second, nano) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        long sumBefore(int index) {
+            return index == 0 ? 0 : runningTotals[index - 1];
+        }
+
+        LocalDateTime timeAt(int index, LocalDateTime now) {
+            if (now != null && compareAt(index, now.toEpochSecond(ZoneOffset.UTC), now.getNano()) == 0) return now;
+            return LocalDateTime.ofEpochSecond(seconds[index], nanos[index], ZoneOffset.UTC);
+        }
+
+        boolean startsNewTime(int index) {
+            return index == 0 || compareAt(index - 1, seconds[index], nanos[index]) != 0;
+        }
+
+        private int compareAt(int index, long second, int nano) {
+            int bySecond = Long.compare(seconds[index], second);
+            return bySecond != 0 ? bySecond : Integer.compare(nanos[index], nano);
+        }
+
+        private void grow() {
+            int capacity = seconds.length * 2;
+            seconds = Arrays.copyOf(seconds, capacity);
+            nanos = Arrays.copyOf(nanos, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            runningTotals = Arrays.copyOf(runningTotals, capacity);
+        }
+    }
+
+    private final class HistoryView extends AbstractMap<AbstractContract, Set<PaymentInstance>> {
+
+        @Override
+        public Set<PaymentInstance> get(Object key) {
+            Column column = find(key);
+            return column == null ? null : new ColumnView(column);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return columns.size();
+        }
+
+        @Override
+        public Set<Entry<AbstractContract, Set<PaymentInstance>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<AbstractContract, Set<PaymentInstance>>> iterator() {
+                    Iterator<Column> iterator = columns.values().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<AbstractContract, Set<PaymentInstance>> next() {
+                            Column column = iterator.next();
+                            return new SimpleImmutableEntry<>(column.contract, new ColumnView(column));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columns.size();
+                }
+            };
+        }
+    }
+
+    private final class ColumnView extends AbstractSet<PaymentInstance> {
+        private final Column column;
+
+        ColumnView(Column column) {
+            this.column = column;
+        }
+
+        @Override
+        public Iterator<PaymentInstance> iterator() {
+            return new Iterator<>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    while (index < column.size && !column.startsNewTime(index)) {
+                        index++;
+                    }
+                    return index < column.size;
+                }
+
+                @Override
+                public PaymentInstance next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return instanceAt(column, index++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            synchronized (column) {
+                return column.distinctTimes;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package payment;
+
+public class PaymentRequest {
+    private final String contractNumber;
+    private final int amount;
+
+    public PaymentRequest(String contractNumber, int amount) {
+        if (contractNumber == null || contractNumber.isEmpty()) {
+            throw new IllegalArgumentException("Contract number cannot be null or empty");
+        }
+
+        this.contractNumber = contractNumber;
+        this.amount = amount;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,32 @@
+package payment;
+
+public class PaymentResult {
+    private final PaymentRequest request;
+    private final String rejectionReason;
+
+    private PaymentResult(PaymentRequest request, String rejectionReason) {
+        this.request = request;
+        this.rejectionReason = rejectionReason;
+    }
+
+    public static PaymentResult applied(PaymentRequest request) {
+        return new PaymentResult(request, null);
+    }
+
+    public static PaymentResult rejected(PaymentRequest request, String reason) {
+        if (reason == null) throw new IllegalArgumentException("Reason cannot be null");
+        return new PaymentResult(request, reason);
+    }
+
+    public PaymentRequest getRequest() {
+        return request;
+    }
+
+    public boolean isApplied() {
+        return rejectionReason == null;
+    }
+
+    public String getRejectionReason() {
+        return rejectionReason;
+    }
+}
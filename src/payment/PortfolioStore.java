@@ -0,0 +1,135 @@
+package payment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/*
+ Columnar storage for contract payment data. Every stored ContractPaymentData owns one slot and
+ its fields live in primitive columns, so accruing a stored contract reads premiums, frequencies,
+ due dates and balances without touching a LocalDateTime; billing still reaches each slot through
+ its contract. Columns are split into fixed size pages, growing the store never moves a slot
+ another thread may be updating.
+ The next payment time is kept as a packed due date (see PremiumAccrual) next to its nano of day,
+ which stays the same when the time moves by whole months, so claiming periods is one compareAndSet.
+ */
+public class PortfolioStore {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final PremiumPaymentFrequency[] FREQUENCIES = PremiumPaymentFrequency.values();
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Page[] pages;
+    private int size;
+
+    public PortfolioStore() {
+        this.pages = new Page[0];
+        this.size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long totalOutstandingBalance() {
+        Page[] current = pages;
+        int count = size();
+        long total = 0;
+        for (int p = 0; p < current.length && count > 0; p++) {
+            int[] balances = current[p].balances;
+            int limit = Math.min(count, PAGE_SIZE);
+            for (int i = 0; i < limit; i++) {
+                total += (int) INTS.getVolatile(balances, i);
+            }
+            count -= limit;
+        }
+        return total;
+    }
+
+    synchronized int add(int premium, PremiumPaymentFrequency frequency, LocalDateTime nextPaymentTime, int balance) {
+        int slot = size;
+        Page[] current = pages;
+        if ((slot >>> PAGE_SHIFT) == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = new Page();
+        }
+
+        Page page = current[slot >>> PAGE_SHIFT];
+        int i = slot & PAGE_MASK;
+        page.premiums[i] = premium;
+        page.frequencies[i] = (byte) frequency.ordinal();
+        page.dueDates[i] = PremiumAccrual.dueDate(nextPaymentTime);
+        page.dueNanos[i] = nextPaymentTime.toLocalTime().toNanoOfDay();
+        page.balances[i] = balance;
+
+        pages = current;
+        size++;
+        return slot;
+    }
+
+    int premium(int slot) {
+        return page(slot).premiums[slot & PAGE_MASK];
+    }
+
+    void setPremium(int slot, int premium) {
+        page(slot).premiums[slot & PAGE_MASK] = premium;
+    }
+
+    PremiumPaymentFrequency frequency(int slot) {
+        return FREQUENCIES[page(slot).frequencies[slot & PAGE_MASK]];
+    }
+
+    void setFrequency(int slot, PremiumPaymentFrequency frequency) {
+        page(slot).frequencies[slot & PAGE_MASK] = (byte) frequency.ordinal();
+    }
+
+    long dueDate(int slot) {
+        return (long) LONGS.getVolatile(page(slot).dueDates, slot & PAGE_MASK);
+    }
+
+    void setDueDate(int slot, long dueDate) {
+        LONGS.setVolatile(page(slot).dueDates, slot & PAGE_MASK, dueDate);
+    }
+
+    boolean compareAndSetDueDate(int slot, long expectedDueDate, long dueDate) {
+        return LONGS.compareAndSet(page(slot).dueDates, slot & PAGE_MASK, expectedDueDate, dueDate);
+    }
+
+    long dueNanoOfDay(int slot) {
+        return page(slot).dueNanos[slot & PAGE_MASK];
+    }
+
+    int balance(int slot) {
+        return (int) INTS.getVolatile(page(slot).balances, slot & PAGE_MASK);
+    }
+
+    int getAndSetBalance(int slot, int balance) {
+        return (int) INTS.getAndSet(page(slot).balances, slot & PAGE_MASK, balance);
+    }
+
+    int getAndAddBalance(int slot, int amount) {
+        return (int) INTS.getAndAdd(page(slot).balances, slot & PAGE_MASK, amount);
+    }
+
+    boolean compareAndSetBalance(int slot, int expectedBalance, int balance) {
+        return INTS.compareAndSet(page(slot).balances, slot & PAGE_MASK, expectedBalance, balance);
+    }
+
+    /*
+    @ help methods
+     */
+    private Page page(int slot) {
+        return pages[slot >>> PAGE_SHIFT];
+    }
+
+    private static final class Page {
+        private final int[] premiums = new int[PAGE_SIZE];
+        private final byte[] frequencies = new byte[PAGE_SIZE];
+        private final long[] dueDates = new long[PAGE_SIZE];
+        private final long[] dueNanos = new long[PAGE_SIZE];
+        private final int[] balances = new int[PAGE_SIZE];
+    }
+}
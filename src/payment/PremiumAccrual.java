@@ -0,0 +1,131 @@
+package payment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/*
+ Due times are handled as (month index, day of month, nano of day), where month index is
+ year * 12 + month - 1. Adding months keeps the day unless the target month is shorter,
+ in which case the day is clamped - the same rule LocalDateTime.plusMonths applies.
+ Once the day can no longer be clamped by any month the frequency visits, the remaining
+ periods are plain month arithmetic.
+ */
+public final class PremiumAccrual {
+
+    private PremiumAccrual() {
+    }
+
+    public static long periodsDue(LocalDateTime nextPaymentTime, PremiumPaymentFrequency frequency,
+                                  LocalDateTime currentTime) {
+        return periodsDue(monthIndex(nextPaymentTime), nextPaymentTime.getDayOfMonth(),
+                nextPaymentTime.toLocalTime().toNanoOfDay(), frequency.getValueInMonths(),
+                monthIndex(currentTime), currentTime.getDayOfMonth(), currentTime.toLocalTime().toNanoOfDay());
+    }
+
+    public static LocalDateTime advance(LocalDateTime nextPaymentTime, PremiumPaymentFrequency frequency,
+                                        long periods) {
+        if (periods < 0) throw new IllegalArgumentException("Periods cannot be negative");
+        if (periods == 0) return nextPaymentTime;
+
+        long dueDate = advance(dueDate(nextPaymentTime), frequency.getValueInMonths(), periods);
+        return toDateTime(dueDate, nextPaymentTime.toLocalTime().toNanoOfDay());
+    }
+
+    // due date packed as monthIndex << 5 | day, the time of day is not part of it since adding months keeps it
+    public static long advance(long dueDate, int months, long periods) {
+        if (periods < 0) throw new IllegalArgumentException("Periods cannot be negative");
+
+        long monthIndex = dueMonthIndex(dueDate);
+        int day = dueDay(dueDate);
+
+        long done = 0;
+        long limit = Math.min(periods, stabilizationSteps(months));
+        while (done < limit && day > 28) {
+            monthIndex += months;
+            day = Math.min(day, lengthOfMonth(monthIndex));
+            done++;
+        }
+        monthIndex += (periods - done) * months;
+
+        return monthIndex << 5 | day;
+    }
+
+    public static long dueDate(LocalDateTime time) {
+        return monthIndex(time) << 5 | time.getDayOfMonth();
+    }
+
+    public static long dueMonthIndex(long dueDate) {
+        return dueDate >> 5;
+    }
+
+    public static int dueDay(long dueDate) {
+        return (int) (dueDate & 31);
+    }
+
+    public static LocalDateTime toDateTime(long dueDate, long nanoOfDay) {
+        long monthIndex = dueMonthIndex(dueDate);
+        return LocalDateTime.of(LocalDate.of(year(monthIndex), month(monthIndex), dueDay(dueDate)),
+                LocalTime.ofNanoOfDay(nanoOfDay));
+    }
+
+    public static long periodsDue(long dueMonthIndex, int dueDay, long dueNanoOfDay, int months,
+                                  long currentMonthIndex, int currentDay, long currentNanoOfDay) {
+        long periods = 0;
+        long limit = stabilizationSteps(months);
+
+        while (dueDay > 28 && periods < limit) {
+            if (isAfter(dueMonthIndex, dueDay, dueNanoOfDay, currentMonthIndex, currentDay, currentNanoOfDay)) {
+                return periods;
+            }
+            periods++;
+            dueMonthIndex += months;
+            dueDay = Math.min(dueDay, lengthOfMonth(dueMonthIndex));
+        }
+
+        long lastMonthIndex = currentMonthIndex;
+        if (dueDay > currentDay || (dueDay == currentDay && dueNanoOfDay > currentNanoOfDay)) {
+            lastMonthIndex--;
+        }
+        if (lastMonthIndex < dueMonthIndex) return periods;
+
+        return periods + (lastMonthIndex - dueMonthIndex) / months + 1;
+    }
+
+    public static long monthIndex(LocalDateTime time) {
+        return time.getYear() * 12L + time.getMonthValue() - 1;
+    }
+
+    public static int lengthOfMonth(long monthIndex) {
+        int month = month(monthIndex);
+        if (month == 2) {
+            long year = Math.floorDiv(monthIndex, 12);
+            boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /*
+    @ help methods
+     */
+    // within three years every calendar month the frequency visits is hit, non-leap February included
+    private static long stabilizationSteps(int months) {
+        return 3L * 12 / months;
+    }
+
+    private static boolean isAfter(long monthIndex, int day, long nanoOfDay,
+                                   long otherMonthIndex, int otherDay, long otherNanoOfDay) {
+        if (monthIndex != otherMonthIndex) return monthIndex > otherMonthIndex;
+        if (day != otherDay) return day > otherDay;
+        return nanoOfDay > otherNanoOfDay;
+    }
+
+    private static int year(long monthIndex) {
+        return Math.toIntExact(Math.floorDiv(monthIndex, 12));
+    }
+
+    private static int month(long monthIndex) {
+        return Math.floorMod(monthIndex, 12) + 1;
+    }
+}
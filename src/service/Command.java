@@ -0,0 +1,112 @@
+package service;
+
+import java.util.Set;
+
+import company.ContractProposal;
+import company.InsuranceCompany;
+import contracts.AbstractContract;
+import contracts.InvalidContractException;
+import contracts.MasterVehicleContract;
+import contracts.SingleVehicleContract;
+import contracts.TravelContract;
+import objects.Person;
+
+/*
+ One operation on one contract. Commands with the same contract number are executed one at a time
+ and in submission order by InsuranceService.
+ */
+public abstract class Command<T> {
+    private final String contractNumber;
+
+    private Command(String contractNumber) {
+        if (contractNumber == null || contractNumber.isEmpty()) {
+            throw new IllegalArgumentException("Contract number cannot be null or empty");
+        }
+        this.contractNumber = contractNumber;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    abstract T execute(InsuranceCompany insurer);
+
+    public static Command<Void> pay(String contractNumber, int amount) {
+        return new Command<>(contractNumber) {
+            @Override
+            Void execute(InsuranceCompany insurer) {
+                AbstractContract contract = find(insurer, contractNumber);
+                if (contract instanceof MasterVehicleContract master) {
+                    insurer.getHandler().pay(master, amount);
+                } else {
+                    insurer.getHandler().pay(contract, amount);
+                }
+                return null;
+            }
+        };
+    }
+
+    public static Command<Void> charge(String contractNumber) {
+        return new Command<>(contractNumber) {
+            @Override
+            Void execute(InsuranceCompany insurer) {
+                AbstractContract contract = find(insurer, contractNumber);
+                if (contract.isActive()) contract.updateBalance();
+                return null;
+            }
+        };
+    }
+
+    public static Command<Void> claim(String contractNumber, int expectedDamages) {
+        return new Command<>(contractNumber) {
+            @Override
+            Void execute(InsuranceCompany insurer) {
+                if (!(find(insurer, contractNumber) instanceof SingleVehicleContract contract)) {
+                    throw new InvalidContractException("Contract " + contractNumber + " is not a single vehicle contract");
+                }
+                insurer.processClaim(contract, expectedDamages);
+                return null;
+            }
+        };
+    }
+
+    public static Command<Void> claim(String contractNumber, Set<Person> affectedPersons) {
+        return new Command<>(contractNumber) {
+            @Override
+            Void execute(InsuranceCompany insurer) {
+                if (!(find(insurer, contractNumber) instanceof TravelContract contract)) {
+                    throw new InvalidContractException("Contract " + contractNumber + " is not a travel contract");
+                }
+                insurer.processClaim(contract, affectedPersons);
+                return null;
+            }
+        };
+    }
+
+    public static Command<AbstractContract> insure(ContractProposal proposal) {
+        if (proposal == null) throw new IllegalArgumentException("Proposal cannot be null");
+
+        return new Command<>(proposal.getContractNumber()) {
+            @Override
+            AbstractContract execute(InsuranceCompany insurer) {
+                if (proposal.isTravel()) {
+                    return insurer.insurePersons(proposal.getContractNumber(), proposal.getPolicyHolder(),
+                            proposal.getProposedPremium(), proposal.getProposedPaymentFrequency(),
+                            proposal.getPersonsToInsure());
+                }
+                return insurer.insureVehicle(proposal.getContractNumber(), proposal.getBeneficiary(),
+                        proposal.getPolicyHolder(), proposal.getProposedPremium(),
+                        proposal.getProposedPaymentFrequency(), proposal.getVehicleToInsure());
+            }
+        };
+    }
+
+    /*
+    @ help methods
+     */
+    private static AbstractContract find(InsuranceCompany insurer, String contractNumber) {
+        AbstractContract contract = insurer.findContract(contractNumber);
+        if (contract == null) throw new InvalidContractException("Unknown contract " + contractNumber);
+        return contract;
+    }
+}
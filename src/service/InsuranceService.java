@@ -0,0 +1,102 @@
+package service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import company.InsuranceCompany;
+
+/*
+ Front end that runs commands on virtual threads. Every contract number has a mailbox that is
+ drained by at most one virtual thread at a time, so commands on one contract run in order while
+ different contracts run in parallel. A mailbox only exists while it has work: enqueueing and
+ retiring an empty mailbox both happen inside compute on its key, so they cannot interleave.
+ */
+public class InsuranceService implements AutoCloseable {
+    private final InsuranceCompany insurer;
+    private final ExecutorService executor;
+    private final Map<String, Mailbox> mailboxes;
+    private volatile boolean closed;
+
+    public InsuranceService(InsuranceCompany insurer) {
+        if (insurer == null) throw new IllegalArgumentException("Insurer cannot be null");
+
+        this.insurer = insurer;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.mailboxes = new ConcurrentHashMap<>();
+    }
+
+    public InsuranceCompany getInsurer() {
+        return insurer;
+    }
+
+    public <T> CompletableFuture<T> submit(Command<T> command) {
+        if (command == null) throw new IllegalArgumentException("Command cannot be null");
+        if (closed) throw new IllegalStateException("Service is closed");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(command.execute(insurer));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+
+        mailboxes.compute(command.getContractNumber(), (contractNumber, mailbox) -> {
+            if (mailbox == null) mailbox = new Mailbox(contractNumber);
+            mailbox.tasks.add(task);
+            if (!mailbox.draining) {
+                mailbox.draining = true;
+                executor.execute(mailbox::drain);
+            }
+            return mailbox;
+        });
+        return result;
+    }
+
+    public int getActiveMailboxCount() {
+        return mailboxes.size();
+    }
+
+    // waits for every submitted command to finish
+    @Override
+    public void close() {
+        closed = true;
+        executor.close();
+    }
+
+    private class Mailbox {
+        private final String contractNumber;
+        private final Queue<Runnable> tasks;
+        private boolean draining;
+
+        Mailbox(String contractNumber) {
+            this.contractNumber = contractNumber;
+            this.tasks = new ConcurrentLinkedQueue<>();
+        }
+
+        void drain() {
+            while (true) {
+                Runnable task = tasks.poll();
+                if (task != null) {
+                    task.run();
+                    continue;
+                }
+
+                boolean[] retired = {false};
+                mailboxes.computeIfPresent(contractNumber, (key, mailbox) -> {
+                    if (!mailbox.tasks.isEmpty()) return mailbox;
+                    mailbox.draining = false;
+                    retired[0] = true;
+                    return null;
+                });
+                if (retired[0]) return;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import company.ContractProposal;
+import objects.Person;
+import objects.Vehicle;
+import payment.PremiumPaymentFrequency;
+
+/*
+ Closed-loop clients on virtual threads, each waiting for its command before sending the next.
+ Mix: 80% payments, 10% premium charges, 5% small vehicle claims (the contract stays active)
+ and 5% new vehicle contracts. Payments, charges and claims pick a random existing contract.
+ */
+public class LoadGenerator {
+    private final InsuranceService service;
+    private final List<String> contractNumbers;
+    private final long seed;
+
+    public LoadGenerator(InsuranceService service, List<String> contractNumbers, long seed) {
+        if (service == null) throw new IllegalArgumentException("Service cannot be null");
+        if (contractNumbers == null || contractNumbers.isEmpty()) {
+            throw new IllegalArgumentException("Contract numbers cannot be null or empty");
+        }
+
+        this.service = service;
+        this.contractNumbers = List.copyOf(contractNumbers);
+        this.seed = seed;
+    }
+
+    public LoadReport run(int clients, int commandsPerClient) {
+        if (clients <= 0 || commandsPerClient <= 0) {
+            throw new IllegalArgumentException("Clients and commands per client must be positive");
+        }
+
+        long[] latencies = new long[clients * commandsPerClient];
+        AtomicLong failed = new AtomicLong();
+        SplittableRandom root = new SplittableRandom(seed);
+        List<SplittableRandom> randoms = new ArrayList<>();
+        for (int client = 0; client < clients; client++) {
+            randoms.add(root.split());
+        }
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                int clientIndex = client;
+                executor.execute(() -> runClient(clientIndex, commandsPerClient, randoms.get(clientIndex),
+                        latencies, failed));
+            }
+        }
+        return new LoadReport(latencies, failed.get(), System.nanoTime() - start);
+    }
+
+    /*
+    @ help methods
+     */
+    private void runClient(int client, int commands, SplittableRandom random, long[] latencies, AtomicLong failed) {
+        Person holder = new Person(String.format("%08d", 10_000_000 + client));
+
+        for (int i = 0; i < commands; i++) {
+            Command<?> command = nextCommand(client, i, holder, random);
+            long sent = System.nanoTime();
+            try {
+                service.submit(command).join();
+            } catch (CompletionException e) {
+                failed.incrementAndGet();
+            }
+            latencies[client * commands + i] = System.nanoTime() - sent;
+        }
+    }
+
+    private Command<?> nextCommand(int client, int sequence, Person holder, SplittableRandom random) {
+        int roll = random.nextInt(100);
+        String contractNumber = contractNumbers.get(random.nextInt(contractNumbers.size()));
+
+        if (roll < 80) return Command.pay(contractNumber, 1 + random.nextInt(100));
+        if (roll < 90) return Command.charge(contractNumber);
+        if (roll < 95) return Command.claim(contractNumber, 1);
+
+        String plate = "LG" + Integer.toString(client * 100_000 + sequence, 36).toUpperCase();
+        plate = (plate + "00000").substring(0, 7);
+        return Command.insure(ContractProposal.vehicle("LG-" + client + "-" + sequence, null, holder, 100,
+                PremiumPaymentFrequency.MONTHLY, new Vehicle(plate, 1000)));
+    }
+}
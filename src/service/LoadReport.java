@@ -0,0 +1,48 @@
+package service;
+
+import java.util.Arrays;
+
+public class LoadReport {
+    private final long[] latencies;
+    private final long failed;
+    private final long elapsedNanos;
+
+    LoadReport(long[] latencies, long failed, long elapsedNanos) {
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCommands() {
+        return latencies.length;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : latencies.length * 1e9 / elapsedNanos;
+    }
+
+    // nearest-rank percentile of the command latencies in nanoseconds, percentile in (0, 100]
+    public long getLatencyPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be in (0, 100]");
+        if (latencies.length == 0) return 0;
+
+        int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+        return latencies[Math.max(rank, 1) - 1];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commands (%d failed) in %.1f ms, %.0f/s, p50 %d us, p99 %d us, max %d us",
+                getCommands(), failed, elapsedNanos / 1e6, getCommandsPerSecond(),
+                getLatencyPercentile(50) / 1000, getLatencyPercentile(99) / 1000, getLatencyPercentile(100) / 1000);
+    }
+}